@@ -0,0 +1,105 @@
+package com.koinsave.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH JSON result file against the committed baseline and exits with status 1 if any
+ * benchmark regressed by more than the allowed percentage, or has no baseline entry at all. A
+ * benchmark without a baseline cannot be checked, so it fails the gate unless
+ * {@code --allow-missing} is passed, e.g. in the run that adds a new benchmark.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="-rf json -rff target/jmh-result.json"
+ * mvn -Pbenchmark exec:exec -Djmh.main=com.koinsave.benchmark.BaselineComparator \
+ *     -Djmh.args="src/jmh/baseline.json target/jmh-result.json 10"
+ * </pre>
+ *
+ * To record a new baseline, run the first command with {@code -rff src/jmh/baseline.json} on the
+ * reference machine and commit the file.
+ */
+public class BaselineComparator {
+
+    public static void main(String[] args) throws IOException {
+        List<String> positional = new ArrayList<>(List.of(args));
+        boolean allowMissing = positional.remove("--allow-missing");
+        if (positional.size() < 2) {
+            System.err.println("Usage: BaselineComparator <baseline.json> <result.json> [max-regression-percent] [--allow-missing]");
+            System.exit(2);
+        }
+        double maxRegression = positional.size() > 2 ? Double.parseDouble(positional.get(2)) : 10.0;
+
+        Map<String, Score> baseline = read(new File(positional.get(0)));
+        Map<String, Score> current = read(new File(positional.get(1)));
+        if (current.isEmpty()) {
+            System.out.println("The result file contains no benchmarks");
+            System.exit(1);
+        }
+
+        int regressions = 0;
+        int missing = 0;
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score now = entry.getValue();
+            Score before = baseline.get(entry.getKey());
+            if (before == null) {
+                missing++;
+                System.out.printf("%-80s %14.3f %-8s NO BASELINE%n", entry.getKey(), now.value(), now.unit());
+                continue;
+            }
+            // Positive change is always an improvement, whichever direction the mode counts as better
+            double change = (now.value() - before.value()) / before.value() * 100.0;
+            if (!now.higherIsBetter()) {
+                change = -change;
+            }
+            boolean regressed = change < -maxRegression;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-80s %14.3f %-8s %+7.1f%% %s%n", entry.getKey(), now.value(), now.unit(), change,
+                    regressed ? "REGRESSION" : "");
+        }
+
+        if (missing > 0) {
+            System.out.printf("%d benchmark(s) have no baseline entry; record one with -rff %s on the reference machine%n",
+                    missing, positional.get(0));
+        }
+        if (regressions > 0) {
+            System.out.printf("%d benchmark(s) regressed by more than %.1f%%%n", regressions, maxRegression);
+        }
+        if (regressions > 0 || (missing > 0 && !allowMissing)) {
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, Score> read(File file) throws IOException {
+        Map<String, Score> scores = new TreeMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            Map<String, String> params = new LinkedHashMap<>();
+            JsonNode paramsNode = run.path("params");
+            for (Iterator<Map.Entry<String, JsonNode>> it = paramsNode.fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> param = it.next();
+                params.put(param.getKey(), param.getValue().asText());
+            }
+            String key = run.path("benchmark").asText() + (params.isEmpty() ? "" : params.toString())
+                    + " [" + run.path("threads").asInt() + "t]";
+            JsonNode metric = run.path("primaryMetric");
+            scores.put(key, new Score(
+                    metric.path("score").asDouble(),
+                    metric.path("scoreUnit").asText(),
+                    "thrpt".equals(run.path("mode").asText())));
+        }
+        return scores;
+    }
+
+    private record Score(double value, String unit, boolean higherIsBetter) {
+    }
+}
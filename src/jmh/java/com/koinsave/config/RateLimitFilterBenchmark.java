@@ -0,0 +1,67 @@
+package com.koinsave.config;
+
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full filter admission path (client identification, limiter, chain or 429) under 16 threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class RateLimitFilterBenchmark {
+
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> { };
+
+    private RateLimitFilter filter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filter = new RateLimitFilter();
+        ReflectionTestUtils.setField(filter, "rateLimitEnabled", true);
+        ReflectionTestUtils.setField(filter, "requestsPerMinute", 600);
+        ReflectionTestUtils.setField(filter, "burst", 10);
+        ReflectionTestUtils.setField(filter, "idleTimeoutMinutes", 10L);
+        ReflectionTestUtils.setField(filter, "maxClients", 100_000L);
+        filter.init();
+    }
+
+    @Benchmark
+    public int admitAuthenticated() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/transactions/balance");
+        request.setAttribute("userId", (long) ThreadLocalRandom.current().nextInt(1_000));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, NO_OP_CHAIN);
+        return response.getStatus();
+    }
+
+    @Benchmark
+    public int admitAnonymous() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/transactions/balance");
+        request.setRemoteAddr("10.0.0." + ThreadLocalRandom.current().nextInt(256));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, NO_OP_CHAIN);
+        return response.getStatus();
+    }
+}
@@ -0,0 +1,257 @@
+package com.koinsave.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop HTTP load generator for a running Koinsave instance. Every request runs on its own
+ * virtual thread and is scheduled at a fixed rate, and latency is measured from the scheduled
+ * start so a slow server cannot hide queueing delay. After the run it checks that money was
+ * conserved: the balances of all generated users must still add up to what they started with.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.main=com.koinsave.loadtest.LoadGenerator \
+ *     -Djmh.args="--base-url http://localhost:8080 --users 200 --rate 500 --duration 60 \
+ *                 --mix transfer=60,balance=30,history=10"
+ * </pre>
+ *
+ * Start the server with {@code RATE_LIMIT_ENABLED=false} unless rate limiting is what you are measuring.
+ */
+public class LoadGenerator {
+
+    enum Operation { TRANSFER, BALANCE, HISTORY }
+
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client;
+    private final String baseUrl;
+    private final int userCount;
+    private final int rate;
+    private final Duration duration;
+    private final Map<Operation, Integer> mix;
+
+    private final List<Account> accounts = new ArrayList<>();
+    private final Map<Operation, Queue<Long>> latencies = new EnumMap<>(Operation.class);
+    private final Map<String, LongAdder> statusCounts = new ConcurrentHashMap<>();
+
+    public LoadGenerator(Map<String, String> options) {
+        this.baseUrl = options.getOrDefault("base-url", "http://localhost:8080");
+        this.userCount = Integer.parseInt(options.getOrDefault("users", "100"));
+        this.rate = Integer.parseInt(options.getOrDefault("rate", "200"));
+        this.duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30")));
+        this.mix = parseMix(options.getOrDefault("mix", "transfer=60,balance=30,history=10"));
+        this.client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        boolean conserved = new LoadGenerator(options).run();
+        System.exit(conserved ? 0 : 1);
+    }
+
+    public boolean run() throws Exception {
+        setUpAccounts();
+        System.out.printf("Driving %d req/s for %ds against %s with mix %s%n", rate, duration.toSeconds(), baseUrl, mix);
+
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long scheduled = start; scheduled < end; scheduled += intervalNanos) {
+                long wait = scheduled - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                long intendedStart = scheduled;
+                Operation operation = pickOperation();
+                executor.execute(() -> execute(operation, intendedStart));
+            }
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        report(elapsedSeconds);
+        return verifyConservation();
+    }
+
+    private void setUpAccounts() throws Exception {
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Account>> futures = new ArrayList<>();
+            for (int i = 0; i < userCount; i++) {
+                String email = "load-" + runId + "-" + i + "@example.com";
+                futures.add(executor.submit(() -> registerAndLogin(email)));
+            }
+            for (Future<Account> future : futures) {
+                accounts.add(future.get());
+            }
+        }
+        System.out.printf("Registered and logged in %d users%n", accounts.size());
+    }
+
+    private Account registerAndLogin(String email) throws IOException, InterruptedException {
+        String password = "password123";
+        HttpResponse<String> registered = post("/api/auth/register", null, String.format(
+                "{\"email\":\"%s\",\"password\":\"%s\",\"fullName\":\"Load User\",\"initialBalance\":%s}",
+                email, password, INITIAL_BALANCE.toPlainString()));
+        if (registered.statusCode() != 201) {
+            throw new IllegalStateException("Registration failed: " + registered.statusCode() + " " + registered.body());
+        }
+
+        HttpResponse<String> loggedIn = post("/api/auth/login", null,
+                String.format("{\"email\":\"%s\",\"password\":\"%s\"}", email, password));
+        if (loggedIn.statusCode() != 200) {
+            throw new IllegalStateException("Login failed: " + loggedIn.statusCode() + " " + loggedIn.body());
+        }
+        JsonNode body = objectMapper.readTree(loggedIn.body());
+        return new Account(body.path("userId").asLong(), body.path("token").asText());
+    }
+
+    private void execute(Operation operation, long intendedStart) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Account account = accounts.get(random.nextInt(accounts.size()));
+        String status;
+        try {
+            HttpResponse<String> response = switch (operation) {
+                case TRANSFER -> {
+                    Account receiver = accounts.get(random.nextInt(accounts.size()));
+                    while (receiver == account && accounts.size() > 1) {
+                        receiver = accounts.get(random.nextInt(accounts.size()));
+                    }
+                    BigDecimal amount = BigDecimal.valueOf(random.nextInt(1, 500), 2);
+                    yield post("/api/transactions/transfer", account.token(), String.format(
+                            "{\"receiverId\":%d,\"amount\":%s,\"description\":\"load test\"}",
+                            receiver.userId(), amount.toPlainString()));
+                }
+                case BALANCE -> get("/api/transactions/balance", account.token());
+                case HISTORY -> get("/api/transactions/history?size=20", account.token());
+            };
+            status = Integer.toString(response.statusCode());
+        } catch (Exception e) {
+            status = e.getClass().getSimpleName();
+        }
+        latencies.get(operation).add(System.nanoTime() - intendedStart);
+        statusCounts.computeIfAbsent(operation + " " + status, k -> new LongAdder()).increment();
+    }
+
+    private void report(double elapsedSeconds) {
+        System.out.printf("%n%-10s %10s %10s %10s %10s %10s %10s %10s%n",
+                "operation", "count", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        long total = 0;
+        for (Operation operation : Operation.values()) {
+            long[] sorted = latencies.get(operation).stream().mapToLong(Long::longValue).sorted().toArray();
+            total += sorted.length;
+            if (sorted.length == 0) {
+                continue;
+            }
+            System.out.printf("%-10s %10d %10.1f %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                    operation, sorted.length, sorted.length / elapsedSeconds,
+                    percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99),
+                    percentile(sorted, 99.9), sorted[sorted.length - 1] / 1e6);
+        }
+        System.out.printf("%-10s %10d %10.1f%n%n", "total", total, total / elapsedSeconds);
+        statusCounts.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> System.out.printf("  %-24s %d%n", entry.getKey(), entry.getValue().sum()));
+    }
+
+    private boolean verifyConservation() throws IOException, InterruptedException {
+        BigDecimal sum = BigDecimal.ZERO;
+        for (Account account : accounts) {
+            HttpResponse<String> response = get("/api/transactions/balance", account.token());
+            if (response.statusCode() != 200) {
+                System.out.printf("%nBalance check failed for user %d: %d%n", account.userId(), response.statusCode());
+                return false;
+            }
+            sum = sum.add(new BigDecimal(objectMapper.readTree(response.body()).path("balance").asText()));
+        }
+        BigDecimal expected = INITIAL_BALANCE.multiply(BigDecimal.valueOf(accounts.size()));
+        boolean conserved = sum.compareTo(expected) == 0;
+        System.out.printf("%nBalance check: expected %s, found %s -> %s%n",
+                expected.toPlainString(), sum.setScale(2, RoundingMode.UNNECESSARY).toPlainString(),
+                conserved ? "OK" : "MISMATCH");
+        return conserved;
+    }
+
+    private HttpResponse<String> post(String path, String token, String json) throws IOException, InterruptedException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return client.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(String path, String token) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private Operation pickOperation() {
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        int pick = ThreadLocalRandom.current().nextInt(total);
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            pick -= entry.getValue();
+            if (pick < 0) {
+                return entry.getKey();
+            }
+        }
+        return Operation.BALANCE;
+    }
+
+    private static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String part : value.split(",")) {
+            String[] weight = part.split("=");
+            mix.put(Operation.valueOf(weight[0].trim().toUpperCase()), Integer.parseInt(weight[1].trim()));
+        }
+        return mix;
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    private record Account(long userId, String token) {
+    }
+}
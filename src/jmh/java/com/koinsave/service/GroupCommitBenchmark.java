@@ -0,0 +1,113 @@
+package com.koinsave.service;
+
+import com.koinsave.KoinsaveApplication;
+import com.koinsave.dto.request.TransferRequest;
+import com.koinsave.dto.response.TransactionResponse;
+import com.koinsave.model.User;
+import com.koinsave.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Synchronous transfers through {@link TransferCoalescer} with 64 concurrent callers.
+ * {@code maxBatch=1} gives every transfer its own commit, as without group commit. Sample mode
+ * reports the latency percentiles, p99 included; commits per second are printed after each
+ * iteration from the {@code koinsave.transfer.group.commit} timer.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@Threads(64)
+@State(Scope.Benchmark)
+public class GroupCommitBenchmark {
+
+    private static final int ACCOUNTS = 1000;
+
+    @Param({"1", "2", "4", "8", "16", "32", "64"})
+    public int maxBatch;
+
+    private ConfigurableApplicationContext context;
+    private TransferCoalescer coalescer;
+    private Timer groupCommit;
+    private long[] userIds;
+    private long commitsAtStart;
+    private long iterationStart;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(KoinsaveApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:group-commit-bench-" + maxBatch + ";DB_CLOSE_DELAY=-1",
+                        "spring.datasource.hikari.maximum-pool-size=16",
+                        "transfer.group-commit.enabled=true",
+                        "transfer.group-commit.window-micros=1000",
+                        "transfer.group-commit.max-batch=" + maxBatch,
+                        "transfer.group-commit.committers=4",
+                        "rate-limit.enabled=false",
+                        "logging.level.root=WARN",
+                        "logging.level.com.koinsave=WARN")
+                .run();
+        coalescer = context.getBean(TransferCoalescer.class);
+        groupCommit = context.getBean(MeterRegistry.class).get("koinsave.transfer.group.commit").timer();
+
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        userIds = new long[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            User user = new User();
+            user.setEmail("group" + i + "@example.com");
+            user.setPassword("not-a-real-hash");
+            user.setFullName("Group User " + i);
+            user.setBalance(new BigDecimal("1000000000.00"));
+            userIds[i] = userRepository.save(user).getId();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() {
+        commitsAtStart = groupCommit.count();
+        iterationStart = System.nanoTime();
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportCommits() {
+        double seconds = (System.nanoTime() - iterationStart) / 1e9;
+        System.out.printf("maxBatch=%d commits/s=%.0f%n", maxBatch, (groupCommit.count() - commitsAtStart) / seconds);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public TransactionResponse transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int sender = random.nextInt(ACCOUNTS);
+        int receiver = (sender + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+        return coalescer.transfer(userIds[sender],
+                new TransferRequest(userIds[receiver], new BigDecimal("0.01"), "benchmark"));
+    }
+}
@@ -0,0 +1,137 @@
+package com.koinsave.service;
+
+import com.koinsave.KoinsaveApplication;
+import com.koinsave.dto.request.TransferRequest;
+import com.koinsave.dto.response.TransactionResponse;
+import com.koinsave.model.User;
+import com.koinsave.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many senders paying one receiver through the in-memory ledger engine. {@code hotSlots=1} is
+ * the unsplit account, where every credit queues on the receiver's shard thread; larger values
+ * mark the receiver hot and spread its credits over that many shards.
+ *
+ * <p>The score only counts debits, which answer once the credit is queued. At the end of each
+ * iteration the shards are drained and the credits that actually reached the receiver, taken
+ * from its balance, are printed per second of iteration plus drain time.
+ *
+ * <p>Users are created by a first context on the shared in-memory database, because the hot
+ * account id has to be configured before the ledger engine starts.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@Threads(32)
+@State(Scope.Benchmark)
+public class HotAccountBenchmark {
+
+    private static final int SENDERS = 256;
+    private static final int SHARDS = 8;
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    @Param({"1", "8"})
+    public int hotSlots;
+
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private LedgerTransactionService ledger;
+    private long receiverId;
+    private long[] senderIds;
+    private BigDecimal receiverBalanceAtStart;
+    private long iterationStartNanos;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String database = "spring.datasource.url=jdbc:h2:mem:hot-account-bench-" + hotSlots + ";DB_CLOSE_DELAY=-1";
+
+        try (ConfigurableApplicationContext seeding = start(database, "transaction.engine=jpa")) {
+            UserRepository userRepository = seeding.getBean(UserRepository.class);
+            receiverId = userRepository.save(user("merchant")).getId();
+            senderIds = new long[SENDERS];
+            for (int i = 0; i < SENDERS; i++) {
+                senderIds[i] = userRepository.save(user("payer" + i)).getId();
+            }
+        }
+
+        context = start(database,
+                "transaction.engine=ledger",
+                "ledger.shards=" + SHARDS,
+                "ledger.hot-accounts.ids=" + receiverId,
+                "ledger.hot-accounts.slots=" + hotSlots);
+        transactionService = context.getBean(TransactionService.class);
+        ledger = context.getBean(LedgerTransactionService.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() {
+        ledger.drain();
+        receiverBalanceAtStart = transactionService.getBalance(receiverId).getBalance();
+        iterationStartNanos = System.nanoTime();
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportCredits() {
+        ledger.drain();
+        double seconds = (System.nanoTime() - iterationStartNanos) / 1e9;
+        long credits = transactionService.getBalance(receiverId).getBalance()
+                .subtract(receiverBalanceAtStart)
+                .divide(AMOUNT)
+                .longValueExact();
+        System.out.printf("%ncredits applied: %d, %.0f credits/s%n", credits, credits / seconds);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public TransactionResponse payMerchant() {
+        long senderId = senderIds[ThreadLocalRandom.current().nextInt(SENDERS)];
+        return transactionService.transfer(senderId,
+                new TransferRequest(receiverId, AMOUNT, "benchmark"));
+    }
+
+    private static ConfigurableApplicationContext start(String... properties) {
+        return new SpringApplicationBuilder(KoinsaveApplication.class)
+                .properties(properties)
+                .properties(
+                        "server.port=0",
+                        "rate-limit.enabled=false",
+                        "ledger.compaction.enabled=false",
+                        "logging.level.root=WARN",
+                        "logging.level.com.koinsave=WARN")
+                .run();
+    }
+
+    private static User user(String name) {
+        User user = new User();
+        user.setEmail(name + "@example.com");
+        user.setPassword("not-a-real-hash");
+        user.setFullName(name);
+        user.setBalance(new BigDecimal("1000000000.00"));
+        return user;
+    }
+}
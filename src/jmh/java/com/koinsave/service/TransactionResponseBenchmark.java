@@ -0,0 +1,77 @@
+package com.koinsave.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.koinsave.dto.response.TransactionResponse;
+import com.koinsave.model.Transaction;
+import com.koinsave.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionResponseBenchmark {
+
+    private ObjectMapper objectMapper;
+    private Transaction transaction;
+    private TransactionResponse response;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Same date handling as the ObjectMapper Spring Boot configures
+        objectMapper = JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+
+        transaction = new Transaction();
+        transaction.setId(1L);
+        transaction.setSender(user(1L, "Sender User"));
+        transaction.setReceiver(user(2L, "Receiver User"));
+        transaction.setAmount(new BigDecimal("125.50"));
+        transaction.setDescription("Payment for services");
+        transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+        transaction.setCreatedAt(LocalDateTime.now());
+        response = TransactionServiceImpl.mapToResponse(transaction);
+    }
+
+    @Benchmark
+    public TransactionResponse mapToResponse() {
+        return TransactionServiceImpl.mapToResponse(transaction);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] mapAndSerialize() throws Exception {
+        return objectMapper.writeValueAsBytes(TransactionServiceImpl.mapToResponse(transaction));
+    }
+
+    private static User user(Long id, String fullName) {
+        User user = new User();
+        user.setId(id);
+        user.setFullName(fullName);
+        return user;
+    }
+}
@@ -0,0 +1,87 @@
+package com.koinsave.service;
+
+import com.koinsave.KoinsaveApplication;
+import com.koinsave.dto.request.TransferRequest;
+import com.koinsave.dto.response.TransactionResponse;
+import com.koinsave.model.User;
+import com.koinsave.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TransactionServiceImpl#transfer} through the Spring proxies (retry, transaction) against
+ * an embedded H2 database. {@code accounts} controls contention: fewer accounts means more
+ * transfers queue on the same row locks.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class TransferBenchmark {
+
+    @Param({"10", "1000"})
+    public int accounts;
+
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private long[] userIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(KoinsaveApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:transfer-bench;DB_CLOSE_DELAY=-1",
+                        "rate-limit.enabled=false",
+                        "logging.level.root=WARN",
+                        "logging.level.com.koinsave=WARN")
+                .run();
+        transactionService = context.getBean(TransactionServiceImpl.class);
+
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        userIds = new long[accounts];
+        for (int i = 0; i < accounts; i++) {
+            User user = new User();
+            user.setEmail("bench" + i + "@example.com");
+            user.setPassword("not-a-real-hash");
+            user.setFullName("Bench User " + i);
+            user.setBalance(new BigDecimal("1000000000.00"));
+            userIds[i] = userRepository.save(user).getId();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public TransactionResponse transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int sender = random.nextInt(accounts);
+        int receiver = (sender + 1 + random.nextInt(accounts - 1)) % accounts;
+        return transactionService.transfer(userIds[sender],
+                new TransferRequest(userIds[receiver], new BigDecimal("0.01"), "benchmark"));
+    }
+}
@@ -0,0 +1,68 @@
+package com.koinsave.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtUtilBenchmark {
+
+    private JwtUtil jwtUtil;
+    private JwtUtil uncachedJwtUtil;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jwtUtil = newJwtUtil(true);
+        uncachedJwtUtil = newJwtUtil(false);
+        token = jwtUtil.generateToken("bench@example.com", 42L);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken("bench@example.com", 42L);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtUtil.validateToken(token);
+    }
+
+    @Benchmark
+    public Optional<Long> authenticateCached() {
+        return jwtUtil.authenticate(token);
+    }
+
+    @Benchmark
+    public Optional<Long> authenticateUncached() {
+        return uncachedJwtUtil.authenticate(token);
+    }
+
+    private static JwtUtil newJwtUtil(boolean cacheEnabled) {
+        JwtUtil util = new JwtUtil(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(util, "secret", "thisIsAVeryLongSecretKeyForJWTThatIsMoreThan32Characters!");
+        ReflectionTestUtils.setField(util, "expiration", 86_400_000L);
+        ReflectionTestUtils.setField(util, "cacheEnabled", cacheEnabled);
+        ReflectionTestUtils.setField(util, "cacheMaxSize", 10_000L);
+        util.init();
+        return util;
+    }
+}
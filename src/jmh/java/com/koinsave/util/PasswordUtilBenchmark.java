@@ -0,0 +1,50 @@
+package com.koinsave.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PasswordUtilBenchmark {
+
+    private PasswordUtil passwordUtil;
+    private String encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        passwordUtil = new PasswordUtil(new SimpleMeterRegistry(), 10, 2, 100, 2, 1000);
+        encoded = passwordUtil.encode("password123");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        passwordUtil.shutdown();
+    }
+
+    @Benchmark
+    public String encode() {
+        return passwordUtil.encode("password123");
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return passwordUtil.matches("password123", encoded);
+    }
+}
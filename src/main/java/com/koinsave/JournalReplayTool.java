@@ -0,0 +1,60 @@
+package com.koinsave;
+
+import com.koinsave.service.JournalReplayer;
+import com.koinsave.service.LedgerCompactor;
+import com.koinsave.service.TransferJournal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.ConcurrencyFailureException;
+
+import java.util.stream.Stream;
+
+/**
+ * Recovers the database after a crash of the ledger engine without serving any requests: starts
+ * the application without a web server, which replays the transfer journal into
+ * {@code transactions} and {@code ledger_entries}, then folds every ledger entry into
+ * {@code users.balance}. Takes the same configuration as the application, e.g.
+ *
+ * <pre>
+ *   java -cp koinsave.jar -Dloader.main=com.koinsave.JournalReplayTool \
+ *       org.springframework.boot.loader.launch.PropertiesLauncher --journal.dir=/var/lib/koinsave/journal
+ * </pre>
+ */
+@Slf4j
+public class JournalReplayTool {
+
+    public static void main(String[] args) {
+        // Passed as arguments, since default properties would lose to application.yml
+        String[] arguments = Stream.concat(Stream.of(args), Stream.of(
+                "--transaction.engine=ledger",
+                "--journal.enabled=true",
+                "--ledger.compaction.enabled=true",
+                "--transfer.async.enabled=false")).toArray(String[]::new);
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(KoinsaveApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(arguments)) {
+            TransferJournal journal = context.getBean(TransferJournal.class);
+            // Replay already ran when the ledger started; this catches anything it left behind
+            int replayed = context.getBean(JournalReplayer.class).replay();
+
+            LedgerCompactor compactor = context.getBean(LedgerCompactor.class);
+            long compacted = 0;
+            int pass;
+            do {
+                try {
+                    pass = compactor.compact();
+                } catch (ConcurrencyFailureException e) {
+                    // Raced the background compactor for the same entries
+                    pass = -1;
+                    continue;
+                }
+                compacted += pass;
+            } while (pass != 0);
+
+            log.info("Journal replay finished: {} more transfers replayed, {} ledger entries compacted, checkpoint at {}",
+                    replayed, compacted, journal.checkpoint());
+        }
+    }
+}
@@ -2,7 +2,9 @@ package com.koinsave;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.retry.annotation.EnableRetry;
 
+@EnableRetry
 @SpringBootApplication
 public class KoinsaveApplication {
 
@@ -10,4 +12,3 @@ public class KoinsaveApplication {
         SpringApplication.run(KoinsaveApplication.class, args);
     }
 }
-
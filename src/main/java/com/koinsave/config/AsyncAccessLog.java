@@ -0,0 +1,203 @@
+package com.koinsave.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Access log that keeps formatting and I/O off request threads. Requests claim a slot in a
+ * preallocated ring buffer and copy a few fields into it; a single background thread formats
+ * published slots in batches and appends them to a size-rolled file. When the buffer is full
+ * the event is dropped and counted in {@code koinsave.accesslog.dropped} rather than blocking
+ * the request.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "access-log.mode", havingValue = "async")
+public class AsyncAccessLog {
+
+    private static final DateTimeFormatter TIMESTAMP =
+            DateTimeFormatter.ISO_LOCAL_DATE_TIME.withZone(ZoneId.systemDefault());
+    private static final int MAX_BATCH = 512;
+
+    private final Event[] slots;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final Path file;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    private BufferedWriter writer;
+    private long fileBytes;
+
+    public AsyncAccessLog(@Value("${access-log.buffer-size:8192}") int bufferSize,
+                          @Value("${access-log.file:logs/access.log}") String file,
+                          @Value("${access-log.max-file-size-mb:100}") long maxFileSizeMb,
+                          @Value("${access-log.max-files:5}") int maxFiles,
+                          MeterRegistry meterRegistry) throws IOException {
+        int capacity = Integer.highestOneBit(Math.max(2, bufferSize - 1)) << 1;
+        this.slots = new Event[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Event();
+        }
+        this.mask = capacity - 1;
+        this.file = Paths.get(file);
+        this.maxFileBytes = maxFileSizeMb * 1024 * 1024;
+        this.maxFiles = maxFiles;
+        openWriter();
+        FunctionCounter.builder("koinsave.accesslog.dropped", dropped, AtomicLong::get)
+                .description("Access log events dropped because the ring buffer was full")
+                .register(meterRegistry);
+
+        this.writerThread = new Thread(this::drainLoop, "access-log-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Records one request. Never blocks; returns false if the event was dropped.
+     */
+    public boolean record(long epochMillis, long durationNanos, String method, String uri, int status, String clientIp) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed.get() >= slots.length) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        Event event = slots[(int) (sequence & mask)];
+        event.epochMillis = epochMillis;
+        event.durationNanos = durationNanos;
+        event.method = method;
+        event.uri = uri;
+        event.status = status;
+        event.clientIp = clientIp;
+        event.published = sequence;
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void drainLoop() {
+        StringBuilder line = new StringBuilder(256);
+        while (running || consumed.get() < claimed.get()) {
+            long next = consumed.get();
+            int batch = 0;
+            try {
+                while (batch < MAX_BATCH) {
+                    Event event = slots[(int) (next & mask)];
+                    if (event.published != next) {
+                        break;
+                    }
+                    line.setLength(0);
+                    format(event, line);
+                    write(line);
+                    event.method = null;
+                    event.uri = null;
+                    event.clientIp = null;
+                    consumed.lazySet(++next);
+                    batch++;
+                }
+                if (batch > 0) {
+                    writer.flush();
+                } else {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+                }
+            } catch (IOException e) {
+                log.error("Failed to write access log", e);
+                LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+            }
+        }
+        closeWriter();
+    }
+
+    private void format(Event event, StringBuilder line) {
+        TIMESTAMP.formatTo(Instant.ofEpochMilli(event.epochMillis), line);
+        line.append(' ').append(event.method)
+                .append(' ').append(event.uri)
+                .append(" - Status: ").append(event.status)
+                .append(" - Duration: ").append(TimeUnit.NANOSECONDS.toMicros(event.durationNanos) / 1000.0).append("ms")
+                .append(" - IP: ").append(event.clientIp)
+                .append('\n');
+    }
+
+    private void write(StringBuilder line) throws IOException {
+        if (fileBytes + line.length() > maxFileBytes) {
+            roll();
+        }
+        writer.append(line);
+        fileBytes += line.length();
+    }
+
+    private void roll() throws IOException {
+        writer.close();
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            Path source = i == 1 ? file : rolled(i - 1);
+            if (Files.exists(source)) {
+                Files.move(source, rolled(i), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        openWriter();
+    }
+
+    private Path rolled(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void openWriter() throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        fileBytes = Files.size(file);
+    }
+
+    private void closeWriter() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.warn("Failed to close access log: {}", e.getMessage());
+        }
+    }
+
+    private static final class Event {
+        private volatile long published = -1;
+        private long epochMillis;
+        private long durationNanos;
+        private String method;
+        private String uri;
+        private int status;
+        private String clientIp;
+    }
+}
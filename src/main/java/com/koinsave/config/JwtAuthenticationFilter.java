@@ -27,8 +27,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                     @NonNull FilterChain filterChain) throws ServletException, IOException {
 
         extractTokenFromHeader(request)
-                .filter(jwtUtil::validateToken)
-                .ifPresent(token -> authenticateRequest(request, token));
+                .flatMap(jwtUtil::authenticate)
+                .ifPresent(userId -> authenticateRequest(request, userId));
 
         filterChain.doFilter(request, response);
     }
@@ -39,14 +39,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 .map(header -> header.substring(7));
     }
 
-    private void authenticateRequest(HttpServletRequest request, String token) {
-        jwtUtil.extractUserId(token).ifPresent(userId -> {
-            UsernamePasswordAuthenticationToken authentication =
-                    new UsernamePasswordAuthenticationToken(null, null, new ArrayList<>());
-            authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+    private void authenticateRequest(HttpServletRequest request, Long userId) {
+        UsernamePasswordAuthenticationToken authentication =
+                new UsernamePasswordAuthenticationToken(null, null, new ArrayList<>());
+        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
-            request.setAttribute("userId", userId);
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-        });
+        request.setAttribute("userId", userId);
+        SecurityContextHolder.getContext().setAuthentication(authentication);
     }
 }
\ No newline at end of file
@@ -6,48 +6,71 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class LoggingFilter extends OncePerRequestFilter {
 
     private static final Logger logger = LoggerFactory.getLogger(LoggingFilter.class);
 
+    private final Optional<AsyncAccessLog> asyncAccessLog;
+
+    // Fraction of successful requests to log; errors (status >= 400) are always logged
+    @Value("${access-log.success-sample-rate:1.0}")
+    private double successSampleRate;
+
+    public LoggingFilter(Optional<AsyncAccessLog> asyncAccessLog) {
+        this.asyncAccessLog = asyncAccessLog;
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
 
-        long startTime = System.currentTimeMillis();
-        String method = request.getMethod();
-        String uri = request.getRequestURI();
-        String clientIp = getClientIp(request);
+        long startNanos = System.nanoTime();
 
         try {
             filterChain.doFilter(request, response);
         } finally {
-            long duration = System.currentTimeMillis() - startTime;
+            long durationNanos = System.nanoTime() - startNanos;
             int status = response.getStatus();
 
-            logger.info("[{}] {} {} - Status: {} - Duration: {}ms - IP: {}",
-                    LocalDateTime.now(),
-                    method,
-                    uri,
-                    status,
-                    duration,
-                    clientIp
-            );
+            if (shouldLog(status)) {
+                if (asyncAccessLog.isPresent()) {
+                    asyncAccessLog.get().record(System.currentTimeMillis(), durationNanos,
+                            request.getMethod(), request.getRequestURI(), status, getClientIp(request));
+                } else {
+                    logger.info("[{}] {} {} - Status: {} - Duration: {}ms - IP: {}",
+                            LocalDateTime.now(),
+                            request.getMethod(),
+                            request.getRequestURI(),
+                            status,
+                            TimeUnit.NANOSECONDS.toMillis(durationNanos),
+                            getClientIp(request)
+                    );
+                }
+            }
         }
     }
 
+    private boolean shouldLog(int status) {
+        return status >= 400
+                || successSampleRate >= 1.0
+                || ThreadLocalRandom.current().nextDouble() < successSampleRate;
+    }
+
     private String getClientIp(HttpServletRequest request) {
         return Optional.ofNullable(request.getHeader("X-Forwarded-For"))
                 .filter(ip -> !ip.isEmpty())
                 .orElse(request.getRemoteAddr());
     }
-}
\ No newline at end of file
+}
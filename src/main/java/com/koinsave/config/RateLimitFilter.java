@@ -1,5 +1,7 @@
 package com.koinsave.config;
 
+import com.koinsave.util.RateLimiter;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -9,10 +11,9 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Map;
+import java.time.Duration;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class RateLimitFilter extends OncePerRequestFilter {
@@ -23,7 +24,21 @@ public class RateLimitFilter extends OncePerRequestFilter {
     @Value("${rate-limit.requests-per-minute:60}")
     private int requestsPerMinute;
 
-    private final Map<String, RequestCounter> requestCounts = new ConcurrentHashMap<>();
+    @Value("${rate-limit.burst:10}")
+    private int burst;
+
+    @Value("${rate-limit.idle-timeout-minutes:10}")
+    private long idleTimeoutMinutes;
+
+    @Value("${rate-limit.max-clients:100000}")
+    private long maxClients;
+
+    private RateLimiter rateLimiter;
+
+    @PostConstruct
+    void init() {
+        rateLimiter = new RateLimiter(requestsPerMinute, burst, Duration.ofMinutes(idleTimeoutMinutes), maxClients);
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -35,11 +50,10 @@ public class RateLimitFilter extends OncePerRequestFilter {
             return;
         }
 
-        String clientId = getClientIdentifier(request);
-        RequestCounter counter = requestCounts.computeIfAbsent(clientId, k -> new RequestCounter());
-
-        if (!counter.allowRequest()) {
+        long waitNanos = rateLimiter.tryAcquire(getClientIdentifier(request));
+        if (waitNanos > 0) {
             response.setStatus(429);
+            response.setHeader("Retry-After", String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos))));
             response.setContentType("application/json");
             response.getWriter().write(
                     "{\"message\":\"Too many requests. Please try again later.\",\"status\":429}"
@@ -52,25 +66,12 @@ public class RateLimitFilter extends OncePerRequestFilter {
         return request.getRequestURI().startsWith("/api/auth");
     }
 
+    // The security chain runs first, so authenticated requests already carry their userId
     private String getClientIdentifier(HttpServletRequest request) {
-        return Optional.ofNullable(request.getHeader("Authorization"))
-                .filter(header -> header.startsWith("Bearer "))
-                .orElseGet(() -> Optional.ofNullable(request.getHeader("X-Forwarded-For"))
+        return Optional.ofNullable(request.getAttribute("userId"))
+                .map(userId -> "user:" + userId)
+                .orElseGet(() -> "ip:" + Optional.ofNullable(request.getHeader("X-Forwarded-For"))
                         .filter(ip -> !ip.isEmpty())
                         .orElse(request.getRemoteAddr()));
     }
-
-    private class RequestCounter {
-        private final AtomicInteger count = new AtomicInteger(0);
-        private long lastResetTime = System.currentTimeMillis();
-
-        public synchronized boolean allowRequest() {
-            long currentTime = System.currentTimeMillis();
-            if (currentTime - lastResetTime > 60000) { // 1 minute
-                count.set(0);
-                lastResetTime = currentTime;
-            }
-            return count.incrementAndGet() <= requestsPerMinute;
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,43 @@
+package com.koinsave.config;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Users who moved money within the last {@code datasource.replica.read-your-writes-ms}. Their
+ * read-only transactions are sent to the primary by {@link ReplicaRoutingDataSource}, so a
+ * replica that lags behind cannot hide their own transfer from them.
+ *
+ * <p>With the ledger engine, history rows are written by the write-behind some time after the
+ * transfer is answered; the window then needs to cover that lag as well as the replica's.
+ */
+@Component
+public class ReadYourWrites {
+
+    private final boolean enabled;
+    private final Cache<Long, Boolean> recentWriters;
+
+    public ReadYourWrites(@Value("${datasource.replica.enabled:false}") boolean replicaEnabled,
+                          @Value("${datasource.replica.read-your-writes-ms:2000}") long windowMs,
+                          @Value("${datasource.replica.read-your-writes-max-users:100000}") long maxUsers) {
+        this.enabled = replicaEnabled && windowMs > 0;
+        this.recentWriters = CacheBuilder.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(Math.max(windowMs, 1), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    public void recordWrite(Long userId) {
+        if (enabled) {
+            recentWriters.put(userId, Boolean.TRUE);
+        }
+    }
+
+    public boolean wroteRecently(Long userId) {
+        return enabled && recentWriters.getIfPresent(userId) != null;
+    }
+}
@@ -0,0 +1,99 @@
+package com.koinsave.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Sends read-only transactions of authenticated requests to the replica pool and everything
+ * else to the primary. Background work (ledger shards, write-behind, queue workers, compaction)
+ * always reads the primary, since it acts on what it reads. So do users listed by
+ * {@link ReadYourWrites}, and balance reads, which feed the balance cache and are therefore
+ * not marked read-only.
+ *
+ * <p>The user is taken from the request attributes, which a thread the request hands work to
+ * does not have. Such work, like the streamed export, names its user with {@link #actingFor};
+ * without that it reads the primary.
+ *
+ * <p>The route is decided when a transaction's first statement asks for a connection, which
+ * requires this data source to sit behind a {@code LazyConnectionDataSourceProxy}: the
+ * transaction manager opens its connection before the read-only flag is bound to the thread.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route {
+        PRIMARY, REPLICA
+    }
+
+    private static final ThreadLocal<Long> DELEGATED_USER = new ThreadLocal<>();
+
+    private final ReadYourWrites readYourWrites;
+    private final Counter primaryRoutes;
+    private final Counter replicaRoutes;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica,
+                                    ReadYourWrites readYourWrites, MeterRegistry meterRegistry) {
+        this.readYourWrites = readYourWrites;
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        this.primaryRoutes = Counter.builder("koinsave.datasource.routes")
+                .description("Connections handed out by target pool")
+                .tag("target", "primary")
+                .register(meterRegistry);
+        this.replicaRoutes = Counter.builder("koinsave.datasource.routes")
+                .description("Connections handed out by target pool")
+                .tag("target", "replica")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Routes this thread's transactions as those of {@code userId} until the returned scope is
+     * closed.
+     */
+    public static Scope actingFor(Long userId) {
+        DELEGATED_USER.set(userId);
+        return DELEGATED_USER::remove;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Route route = route();
+        (route == Route.REPLICA ? replicaRoutes : primaryRoutes).increment();
+        return route;
+    }
+
+    private Route route() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return Route.PRIMARY;
+        }
+        Long userId = requestUserId();
+        if (userId == null || readYourWrites.wroteRecently(userId)) {
+            return Route.PRIMARY;
+        }
+        return Route.REPLICA;
+    }
+
+    // Set by JwtAuthenticationFilter; absent outside request threads and on unauthenticated requests
+    private static Long requestUserId() {
+        Long delegated = DELEGATED_USER.get();
+        if (delegated != null) {
+            return delegated;
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        return (Long) attributes.getAttribute("userId", RequestAttributes.SCOPE_REQUEST);
+    }
+
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
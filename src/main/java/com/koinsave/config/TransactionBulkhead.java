@@ -0,0 +1,67 @@
+package com.koinsave.config;
+
+import com.koinsave.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps the number of {@code @Transactional} service calls in flight at the size of the connection
+ * pool. With virtual threads there is no request thread pool left to do that, so without it every
+ * request would queue inside Hikari. Callers wait on the semaphore for at most
+ * {@code bulkhead.max-wait-ms}, which is cheap on a virtual thread, and are rejected with 503
+ * after that.
+ *
+ * <p>Ordered outside the retry and transaction advice, so a transfer holds one permit across
+ * all of its attempts. Queued transfers settled by {@code TransferQueueWorker} are left out: its
+ * worker count already bounds them, and a 503 there would only fail a background attempt.
+ */
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 2)
+@ConditionalOnProperty(name = "bulkhead.enabled", havingValue = "true")
+public class TransactionBulkhead {
+
+    private final Semaphore permits;
+    private final long maxWaitMs;
+    private final Counter rejected;
+
+    public TransactionBulkhead(@Value("${bulkhead.max-concurrent:10}") int maxConcurrent,
+                               @Value("${bulkhead.max-wait-ms:100}") long maxWaitMs,
+                               MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxWaitMs = maxWaitMs;
+        this.rejected = Counter.builder("koinsave.bulkhead.rejected")
+                .description("Service calls rejected because every database permit was taken")
+                .register(meterRegistry);
+        Gauge.builder("koinsave.bulkhead.in_use", permits, p -> maxConcurrent - p.availablePermits())
+                .description("Service calls currently holding a database permit")
+                .register(meterRegistry);
+    }
+
+    @Around("@annotation(org.springframework.transaction.annotation.Transactional) && within(com.koinsave.service..*)"
+            + " && !execution(* com.koinsave.service.TransactionServiceImpl.processPending(..))"
+            + " && !execution(* com.koinsave.service.TransactionServiceImpl.failPending(..))")
+    public Object limit(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS)) {
+            rejected.increment();
+            throw new ServiceUnavailableException("Server is busy, please retry shortly");
+        }
+        try {
+            return joinPoint.proceed();
+        } finally {
+            permits.release();
+        }
+    }
+}
@@ -1,18 +1,34 @@
 package com.koinsave.controller;
 
+import com.koinsave.config.ReadYourWrites;
+import com.koinsave.config.ReplicaRoutingDataSource;
+import com.koinsave.dto.request.BatchTransferRequest;
+import com.koinsave.dto.request.ExportFormat;
 import com.koinsave.dto.request.TransferRequest;
 import com.koinsave.dto.response.BalanceResponse;
+import com.koinsave.dto.response.BatchItemResult;
+import com.koinsave.dto.response.BatchTransferResponse;
+import com.koinsave.dto.response.TransactionPageResponse;
 import com.koinsave.dto.response.TransactionResponse;
+import com.koinsave.dto.response.TransferStatusResponse;
+import com.koinsave.model.Transaction;
 import com.koinsave.repository.UserRepository;
 import com.koinsave.service.TransactionService;
+import com.koinsave.service.TransferCoalescer;
+import com.koinsave.service.TransferIdempotency;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.net.URI;
 import java.util.List;
 
 @RestController
@@ -21,22 +37,100 @@ import java.util.List;
 public class TransactionController {
 
     private final TransactionService transactionService;
+    private final TransferIdempotency transferIdempotency;
+    private final TransferCoalescer transferCoalescer;
+    private final ReadYourWrites readYourWrites;
 
+    @Value("${transfer.async.enabled:false}")
+    private boolean asyncTransfers;
+
+    // A retry with the same key and body returns the original result instead of transferring again.
+    // In async mode the transfer is only queued: 202 with its status URL instead of 201.
+    // Either way the sender's and receiver's reads go to the primary for a while, so both see the transfer.
     @PostMapping("/transfer")
     public ResponseEntity<TransactionResponse> transfer(
             @Valid @RequestBody TransferRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             HttpServletRequest httpRequest) {
 
         Long userId = (Long) httpRequest.getAttribute("userId");
-        TransactionResponse response = transactionService.transfer(userId, request);
+        TransactionResponse response;
+        if (asyncTransfers) {
+            response = idempotencyKey == null
+                    ? transactionService.submitTransfer(userId, request)
+                    : transferIdempotency.submit(userId, idempotencyKey, request);
+        } else {
+            response = idempotencyKey == null
+                    ? transferCoalescer.transfer(userId, request)
+                    : transferIdempotency.transfer(userId, idempotencyKey, request);
+        }
+        readYourWrites.recordWrite(userId);
+        readYourWrites.recordWrite(request.getReceiverId());
+
+        if (Transaction.TransactionStatus.PENDING.toString().equals(response.getStatus())) {
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/transactions/" + response.getId()))
+                    .body(response);
+        }
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    @GetMapping("/{id:\\d+}")
+    public ResponseEntity<TransferStatusResponse> getTransferStatus(
+            @PathVariable Long id,
+            HttpServletRequest httpRequest) {
+
+        Long userId = (Long) httpRequest.getAttribute("userId");
+        return ResponseEntity.ok(transactionService.getTransferStatus(userId, id));
+    }
+
+    @PostMapping("/transfers/batch")
+    public ResponseEntity<BatchTransferResponse> transferBatch(
+            @Valid @RequestBody BatchTransferRequest request,
+            HttpServletRequest httpRequest) {
+
+        Long userId = (Long) httpRequest.getAttribute("userId");
+        BatchTransferResponse response = transactionService.transferBatch(userId, request);
+        readYourWrites.recordWrite(userId);
+        for (BatchItemResult result : response.getResults()) {
+            if (result.getTransaction() != null) {
+                readYourWrites.recordWrite(result.getTransaction().getReceiverId());
+            }
+        }
+        HttpStatus status = response.getFailed() == 0 ? HttpStatus.CREATED : HttpStatus.OK;
+        return ResponseEntity.status(status).body(response);
+    }
+
     @GetMapping("/history")
-    public ResponseEntity<List<TransactionResponse>> getHistory(HttpServletRequest httpRequest) {
+    public ResponseEntity<TransactionPageResponse> getHistory(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            HttpServletRequest httpRequest) {
+
+        Long userId = (Long) httpRequest.getAttribute("userId");
+        TransactionPageResponse page = transactionService.getTransactionPage(userId, cursor, size);
+        return ResponseEntity.ok(page);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(defaultValue = "ndjson") String format,
+            HttpServletRequest httpRequest) {
+
         Long userId = (Long) httpRequest.getAttribute("userId");
-        List<TransactionResponse> transactions = transactionService.getUserTransactions(userId);
-        return ResponseEntity.ok(transactions);
+        ExportFormat exportFormat = ExportFormat.from(format);
+        // Streamed on an async thread, which has no request attributes to route the reads by
+        StreamingResponseBody body = outputStream -> {
+            try (ReplicaRoutingDataSource.Scope routing = ReplicaRoutingDataSource.actingFor(userId)) {
+                transactionService.exportTransactions(userId, exportFormat, outputStream);
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"transactions." + exportFormat.getExtension() + "\"")
+                .body(body);
     }
 
     @GetMapping("/balance")
@@ -0,0 +1,80 @@
+package com.koinsave.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.koinsave.dto.request.ExportFormat;
+import com.koinsave.dto.response.ImportRowResult;
+import com.koinsave.dto.response.UserImportSummary;
+import com.koinsave.service.UserImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+@RestController
+@RequestMapping("/api/admin/users")
+@RequiredArgsConstructor
+public class UserImportController {
+
+    private final UserImportService userImportService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${user-import.api-key:}")
+    private String apiKey;
+
+    @PostMapping("/import")
+    public ResponseEntity<StreamingResponseBody> importUsers(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestHeader(value = "X-Admin-Key", required = false) String adminKey,
+            HttpServletRequest httpRequest) {
+
+        requireAdminKey(adminKey);
+        ExportFormat importFormat = ExportFormat.from(format);
+
+        StreamingResponseBody body = outputStream -> {
+            try (SequenceWriter writer = objectMapper.writer()
+                    .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .withRootValueSeparator("\n")
+                    .writeValues(outputStream)) {
+                UserImportSummary summary = userImportService.importUsers(
+                        httpRequest.getInputStream(), importFormat, results -> writeChunk(writer, results));
+                writer.write(summary);
+            }
+            outputStream.write('\n');
+            outputStream.flush();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(ExportFormat.NDJSON.getContentType()))
+                .body(body);
+    }
+
+    private void writeChunk(SequenceWriter writer, Iterable<ImportRowResult> results) {
+        try {
+            for (ImportRowResult result : results) {
+                writer.write(result);
+            }
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void requireAdminKey(String adminKey) {
+        if (apiKey == null || apiKey.isBlank() || adminKey == null
+                || !MessageDigest.isEqual(apiKey.getBytes(StandardCharsets.UTF_8),
+                adminKey.getBytes(StandardCharsets.UTF_8))) {
+            throw new AccessDeniedException("Admin key required");
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.koinsave.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransferRequest {
+
+    @NotEmpty(message = "At least one transfer is required")
+    @Size(max = 1000, message = "A batch can contain at most 1000 transfers")
+    private List<@Valid @NotNull TransferRequest> transfers;
+
+    @NotNull(message = "Mode is required")
+    private BatchMode mode = BatchMode.ALL_OR_NOTHING;
+
+    public enum BatchMode {
+        ALL_OR_NOTHING, BEST_EFFORT
+    }
+}
@@ -0,0 +1,19 @@
+package com.koinsave.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItemResult {
+    private int index;
+    private ItemStatus status;
+    private TransactionResponse transaction;
+    private String error;
+
+    public enum ItemStatus {
+        COMPLETED, FAILED, ROLLED_BACK
+    }
+}
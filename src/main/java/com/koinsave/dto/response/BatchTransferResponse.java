@@ -0,0 +1,17 @@
+package com.koinsave.dto.response;
+
+import com.koinsave.dto.request.BatchTransferRequest;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransferResponse {
+    private BatchTransferRequest.BatchMode mode;
+    private int completed;
+    private int failed;
+    private List<BatchItemResult> results;
+}
@@ -0,0 +1,20 @@
+package com.koinsave.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportRowResult {
+    private long line;
+    private String email;
+    private RowStatus status;
+    private Long userId;
+    private String error;
+
+    public enum RowStatus {
+        CREATED, DUPLICATE, INVALID, FAILED
+    }
+}
@@ -0,0 +1,21 @@
+package com.koinsave.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferStatusResponse {
+    private Long id;
+    private Long senderId;
+    private Long receiverId;
+    private BigDecimal amount;
+    private String status;
+    private String failureReason;
+    private LocalDateTime createdAt;
+    private LocalDateTime processedAt;
+}
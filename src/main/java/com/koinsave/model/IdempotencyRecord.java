@@ -0,0 +1,54 @@
+package com.koinsave.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * The outcome of a transfer submitted with an {@code Idempotency-Key}. Keys are scoped to the
+ * sender, and the unique index is what stops two concurrent requests with the same key from
+ * both moving money.
+ *
+ * <p>{@code requestHash} identifies the transfer the key was first used for, so that reusing a
+ * key for a different transfer is rejected rather than answered with an unrelated result.
+ */
+@Entity
+@Table(name = "idempotency_keys", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_idempotency_keys_user_key", columnNames = {"user_id", "idempotency_key"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "idempotency_keys_seq")
+    @SequenceGenerator(name = "idempotency_keys_seq", sequenceName = "idempotency_keys_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "idempotency_key", nullable = false)
+    private String idempotencyKey;
+
+    @Column(nullable = false, length = 64)
+    private String requestHash;
+
+    // Serialized TransactionResponse; only null while the claiming transaction is still open
+    @Column(length = 2048)
+    private String response;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    public static IdempotencyRecord claim(Long userId, String idempotencyKey, String requestHash) {
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setUserId(userId);
+        record.setIdempotencyKey(idempotencyKey);
+        record.setRequestHash(requestHash);
+        return record;
+    }
+}
@@ -0,0 +1,53 @@
+package com.koinsave.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A posting of the in-memory ledger that could not be persisted after every retry, kept for
+ * an operator to resolve. Its debit was acknowledged and applied in memory, so it has no
+ * {@link Transaction} or {@link LedgerEntry} rows and the stored balances disagree with what the
+ * ledger reported until it is dealt with.
+ */
+@Entity
+@Table(name = "ledger_dead_letters")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerDeadLetter {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ledger_dead_letters_seq")
+    @SequenceGenerator(name = "ledger_dead_letters_seq", sequenceName = "ledger_dead_letters_seq", allocationSize = 1)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long senderId;
+
+    @Column(nullable = false)
+    private Long receiverId;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    @Column(length = 1024)
+    private String description;
+
+    private String idempotencyKey;
+
+    private Long journalSequence;
+
+    @Column(nullable = false, length = 1024)
+    private String error;
+
+    // When the transfer was acknowledged
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime failedAt = LocalDateTime.now();
+}
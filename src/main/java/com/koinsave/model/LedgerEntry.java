@@ -0,0 +1,73 @@
+package com.koinsave.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One side of a {@link Transaction}: every transfer appends a DEBIT for the sender and a CREDIT
+ * for the receiver. {@code amount} is signed, so an account's movements sum directly.
+ *
+ * <p>Entries are never changed apart from {@code posted}, which the compactor sets once it has
+ * folded the entry into {@link User#getBalance()}. The spendable balance of an account is its
+ * materialized balance plus the sum of its unposted entries.
+ */
+@Entity
+@Table(name = "ledger_entries", indexes = {
+        @Index(name = "idx_ledger_entries_account_posted", columnList = "account_id, posted"),
+        @Index(name = "idx_ledger_entries_posted", columnList = "posted, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ledger_entries_seq")
+    @SequenceGenerator(name = "ledger_entries_seq", sequenceName = "ledger_entries_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "transaction_id", nullable = false)
+    private Long transactionId;
+
+    @Column(name = "account_id", nullable = false)
+    private Long accountId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EntryType type;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    @Column(nullable = false)
+    private boolean posted = false;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    public enum EntryType {
+        DEBIT, CREDIT
+    }
+
+    public static LedgerEntry debit(Transaction transaction) {
+        return of(transaction, transaction.getSender().getId(), EntryType.DEBIT, transaction.getAmount().negate());
+    }
+
+    public static LedgerEntry credit(Transaction transaction) {
+        return of(transaction, transaction.getReceiver().getId(), EntryType.CREDIT, transaction.getAmount());
+    }
+
+    private static LedgerEntry of(Transaction transaction, Long accountId, EntryType type, BigDecimal amount) {
+        LedgerEntry entry = new LedgerEntry();
+        entry.setTransactionId(transaction.getId());
+        entry.setAccountId(accountId);
+        entry.setType(type);
+        entry.setAmount(amount);
+        entry.setCreatedAt(transaction.getCreatedAt());
+        return entry;
+    }
+}
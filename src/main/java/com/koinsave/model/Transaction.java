@@ -8,14 +8,20 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        @Index(name = "idx_transactions_sender_created", columnList = "sender_id, created_at, id"),
+        @Index(name = "idx_transactions_receiver_created", columnList = "receiver_id, created_at, id"),
+        @Index(name = "idx_transactions_status", columnList = "status, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Transaction {
 
+    // Pooled sequence: one round trip reserves 50 ids, so inserts can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+    @SequenceGenerator(name = "transactions_seq", sequenceName = "transactions_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -39,6 +45,15 @@ public class Transaction {
     @Column(nullable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
 
+    // Only set on queued transfers, once a worker has settled them
+    private String failureReason;
+
+    private LocalDateTime processedAt;
+
+    // Only set on ledger postings written while the transfer journal is enabled
+    @Column(unique = true)
+    private Long journalSequence;
+
     public enum TransactionStatus {
         COMPLETED, FAILED, PENDING
     }
@@ -0,0 +1,9 @@
+package com.koinsave.repository;
+
+import com.koinsave.model.LedgerDeadLetter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface LedgerDeadLetterRepository extends JpaRepository<LedgerDeadLetter, Long> {
+}
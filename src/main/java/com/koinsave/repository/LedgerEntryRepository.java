@@ -0,0 +1,26 @@
+package com.koinsave.repository;
+
+import com.koinsave.model.LedgerEntry;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+
+    @Query("SELECT COALESCE(SUM(e.amount), 0) FROM LedgerEntry e WHERE e.accountId = :accountId AND e.posted = false")
+    BigDecimal sumUnposted(Long accountId);
+
+    List<LedgerEntry> findByPostedFalseOrderByIdAsc(Limit limit);
+
+    // Only flips entries that are still unposted, so a concurrent compactor is detected by the count
+    @Modifying
+    @Query("UPDATE LedgerEntry e SET e.posted = true WHERE e.id IN :ids AND e.posted = false")
+    int markPosted(Collection<Long> ids);
+}
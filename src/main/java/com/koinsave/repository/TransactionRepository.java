@@ -1,11 +1,70 @@
 package com.koinsave.repository;
 
+import com.koinsave.dto.response.TransactionResponse;
 import com.koinsave.model.Transaction;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
+/**
+ * History queries project straight into {@link TransactionResponse}, joining both user names in
+ * the same statement, so no {@link Transaction} or {@code User} entity is loaded or managed.
+ */
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
-    List<Transaction> findBySenderIdOrReceiverIdOrderByCreatedAtDesc(Long senderId, Long receiverId);
-}
\ No newline at end of file
+
+    String RESPONSE_PROJECTION = "SELECT new com.koinsave.dto.response.TransactionResponse(" +
+            "t.id, s.id, s.fullName, r.id, r.fullName, t.amount, t.description, CAST(t.status AS String), t.createdAt) " +
+            "FROM Transaction t JOIN t.sender s JOIN t.receiver r ";
+
+    @Query(RESPONSE_PROJECTION +
+           "WHERE s.id = :userId OR r.id = :userId " +
+           "ORDER BY t.createdAt DESC, t.id DESC")
+    List<TransactionResponse> findHistory(Long userId);
+
+    /**
+     * Same rows as {@link #findHistory(Long)}, read through a JDBC cursor. Must be consumed and
+     * closed inside a transaction.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(RESPONSE_PROJECTION +
+           "WHERE s.id = :userId OR r.id = :userId " +
+           "ORDER BY t.createdAt DESC, t.id DESC")
+    Stream<TransactionResponse> streamHistory(Long userId);
+
+    @Query(RESPONSE_PROJECTION +
+           "WHERE s.id = :userId " +
+           "AND (t.createdAt < :createdAt OR (t.createdAt = :createdAt AND t.id < :id)) " +
+           "ORDER BY t.createdAt DESC, t.id DESC")
+    List<TransactionResponse> findSentBefore(Long userId, LocalDateTime createdAt, Long id, Limit limit);
+
+    @Query(RESPONSE_PROJECTION +
+           "WHERE r.id = :userId " +
+           "AND (t.createdAt < :createdAt OR (t.createdAt = :createdAt AND t.id < :id)) " +
+           "ORDER BY t.createdAt DESC, t.id DESC")
+    List<TransactionResponse> findReceivedBefore(Long userId, LocalDateTime createdAt, Long id, Limit limit);
+
+    List<Transaction> findByStatusOrderByIdAsc(Transaction.TransactionStatus status, Limit limit);
+
+    long countByStatus(Transaction.TransactionStatus status);
+
+    // Only settles transfers that are still queued, so a concurrent worker is detected by the count
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = :status, t.failureReason = :failureReason, t.processedAt = :processedAt " +
+           "WHERE t.id = :id AND t.status = com.koinsave.model.Transaction.TransactionStatus.PENDING")
+    int settlePending(Long id, Transaction.TransactionStatus status, String failureReason, LocalDateTime processedAt);
+
+    @Query("SELECT t.journalSequence FROM Transaction t WHERE t.journalSequence > :sequence")
+    List<Long> findJournalSequencesAfter(long sequence);
+}
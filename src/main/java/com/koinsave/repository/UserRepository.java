@@ -1,11 +1,17 @@
 package com.koinsave.repository;
 
+import com.koinsave.dto.response.BalanceResponse;
 import com.koinsave.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import jakarta.persistence.LockModeType;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -16,5 +22,33 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT u FROM User u WHERE u.id = :id")
     Optional<User> findByIdForUpdate(Long id);
 
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM User u WHERE u.id IN :ids ORDER BY u.id")
+    List<User> findAllByIdForUpdate(Collection<Long> ids);
+
+    // Materialized balance plus unposted ledger entries, read in one statement
+    @Query("SELECT new com.koinsave.dto.response.BalanceResponse(" +
+            "u.balance + COALESCE((SELECT SUM(e.amount) FROM LedgerEntry e WHERE e.accountId = u.id AND e.posted = false), 0), " +
+            "u.email, u.fullName) FROM User u WHERE u.id = :id")
+    Optional<BalanceResponse> findBalance(Long id);
+
+    @Modifying
+    @Query("UPDATE User u SET u.balance = u.balance + :delta, u.version = u.version + 1 WHERE u.id = :id")
+    int adjustBalance(Long id, BigDecimal delta);
+
+    // Version check for optimistic transfers; 0 means another writer got there first
+    @Modifying
+    @Query("UPDATE User u SET u.version = u.version + 1 WHERE u.id = :id AND u.version = :version")
+    int incrementVersion(Long id, Long version);
+
+    // Writes only the hash, leaving version and balance to transfers and the compactor
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password WHERE u.id = :id")
+    int updatePassword(Long id, String password);
+
     boolean existsByEmail(String email);
-}
\ No newline at end of file
+
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    List<String> findExistingEmails(Collection<String> emails);
+}
@@ -79,15 +79,20 @@ package com.koinsave.service;
 import com.koinsave.dto.request.LoginRequest;
 import com.koinsave.dto.request.RegisterRequest;
 import com.koinsave.dto.response.AuthResponse;
+import com.koinsave.dto.response.BalanceResponse;
 import com.koinsave.exception.AuthException;
+import com.koinsave.exception.ServiceUnavailableException;
 import com.koinsave.model.User;
 import com.koinsave.repository.UserRepository;
 import com.koinsave.util.JwtUtil;
 import com.koinsave.util.PasswordUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 
@@ -99,11 +104,16 @@ public class AuthServiceImpl implements AuthService {
     private final UserRepository userRepository;
     private final PasswordUtil passwordUtil;
     private final JwtUtil jwtUtil;
+    private final PlatformTransactionManager transactionManager;
 
+    /**
+     * Not transactional as a whole, for the same reason as {@link #login}: the password is hashed
+     * with no transaction open, and only the second email check and the insert run in one.
+     * The first check just spares the hash for emails that are obviously taken.
+     */
     @Override
-    @Transactional
     public AuthResponse register(RegisterRequest request) {
-        log.info("Starting registration process for email: {}", request.getEmail());
+        log.debug("Starting registration process for email: {}", request.getEmail());
 
         try {
             // Check if user exists
@@ -113,14 +123,14 @@ public class AuthServiceImpl implements AuthService {
                 throw new AuthException("Email already registered");
             }
 
+            log.debug("Encoding password");
+            String encodedPassword = passwordUtil.encode(request.getPassword());
+
             // Create user
             log.debug("Creating new user entity");
             User user = new User();
             user.setEmail(request.getEmail().toLowerCase().trim());
             user.setFullName(request.getFullName().trim());
-
-            log.debug("Encoding password");
-            String encodedPassword = passwordUtil.encode(request.getPassword());
             user.setPassword(encodedPassword);
 
             user.setBalance(request.getInitialBalance() != null ?
@@ -128,12 +138,18 @@ public class AuthServiceImpl implements AuthService {
             user.setActive(true);
 
             log.debug("Saving user to database");
-            User savedUser = userRepository.save(user);
-            log.info("User saved successfully with ID: {}", savedUser.getId());
+            User savedUser = new TransactionTemplate(transactionManager).execute(status -> {
+                // Someone may have registered the email while we were hashing
+                if (userRepository.existsByEmail(request.getEmail())) {
+                    throw new AuthException("Email already registered");
+                }
+                return userRepository.save(user);
+            });
+            log.debug("User saved successfully with ID: {}", savedUser.getId());
 
             log.debug("Generating JWT token");
             String token = jwtUtil.generateToken(savedUser.getEmail(), savedUser.getId());
-            log.info("JWT token generated successfully");
+            log.debug("JWT token generated successfully");
 
             // Create response
             AuthResponse response = new AuthResponse(
@@ -147,19 +163,26 @@ public class AuthServiceImpl implements AuthService {
             log.info("Registration completed successfully for user: {}", savedUser.getEmail());
             return response;
 
-        } catch (AuthException e) {
-            log.error("AuthException during registration: {}", e.getMessage());
+        } catch (AuthException | ServiceUnavailableException e) {
+            log.debug("Registration rejected: {}", e.getMessage());
             throw e;
+        } catch (DataIntegrityViolationException e) {
+            // The unique email index caught a concurrent registration both checks missed
+            log.warn("Registration failed - email already registered: {}", request.getEmail());
+            throw new AuthException("Email already registered");
         } catch (Exception e) {
             log.error("Unexpected error during registration for email: {}", request.getEmail(), e);
             throw new RuntimeException("Registration failed: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Not transactional: the BCrypt verify and rehash wait on the hashing executor, and must not
+     * hold a pooled connection, or a bulkhead permit, while they do.
+     */
     @Override
-    @Transactional(readOnly = true)
     public AuthResponse login(LoginRequest request) {
-        log.info("Login attempt for email: {}", request.getEmail());
+        log.debug("Login attempt for email: {}", request.getEmail());
 
         try {
             User user = userRepository.findByEmail(request.getEmail())
@@ -179,24 +202,47 @@ public class AuthServiceImpl implements AuthService {
                 throw new AuthException("Account is inactive");
             }
 
+            // Hashes stored at an older BCrypt cost are upgraded while the raw password is at hand
+            if (passwordUtil.needsRehash(user.getPassword())) {
+                rehash(user, request.getPassword());
+            }
+
             log.debug("Generating JWT token for login");
             String token = jwtUtil.generateToken(user.getEmail(), user.getId());
             log.info("Login successful for user: {}", user.getEmail());
 
+            // The stored balance misses ledger entries the compactor has not folded in yet
+            BigDecimal balance = userRepository.findBalance(user.getId())
+                    .map(BalanceResponse::getBalance)
+                    .orElse(user.getBalance());
+
             return new AuthResponse(
                     token,
                     user.getEmail(),
                     user.getFullName(),
-                    user.getBalance(),
+                    balance,
                     user.getId()
             );
 
-        } catch (AuthException e) {
-            log.error("AuthException during login: {}", e.getMessage());
+        } catch (AuthException | ServiceUnavailableException e) {
+            log.debug("Login rejected: {}", e.getMessage());
             throw e;
         } catch (Exception e) {
             log.error("Unexpected error during login for email: {}", request.getEmail(), e);
             throw new RuntimeException("Login failed: " + e.getMessage(), e);
         }
     }
+
+    // Only the hash column is written, so a concurrent compaction bumping the version cannot fail it;
+    // if the write fails anyway the login still succeeds and the upgrade is retried next time
+    private void rehash(User user, String rawPassword) {
+        log.debug("Rehashing password at current cost for user: {}", user.getEmail());
+        String rehashed = passwordUtil.encode(rawPassword);
+        try {
+            userRepository.updatePassword(user.getId(), rehashed);
+            user.setPassword(rehashed);
+        } catch (DataAccessException e) {
+            log.warn("Could not store rehashed password for user: {}", user.getEmail(), e);
+        }
+    }
 }
\ No newline at end of file
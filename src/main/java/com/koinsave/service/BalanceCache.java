@@ -0,0 +1,118 @@
+package com.koinsave.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.koinsave.dto.response.BalanceResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of {@link BalanceResponse} by user id. Writers invalidate the accounts they
+ * touched only after their transaction commits. Every entry, including an invalidation, carries
+ * the time it was produced, and a reader may only cache a balance whose read started after the
+ * latest invalidation, so a slow reader can never publish a balance that misses a committed
+ * transfer.
+ *
+ * <p>{@code User.version} cannot play this role: credits are appended as ledger entries and do
+ * not touch the receiver's row.
+ */
+@Component
+public class BalanceCache {
+
+    private final boolean enabled;
+    private final Cache<Long, CachedBalance> balances;
+    private final Counter hits;
+    private final Counter misses;
+
+    public BalanceCache(MeterRegistry meterRegistry,
+                        @Value("${balance-cache.enabled:true}") boolean enabled,
+                        @Value("${balance-cache.max-size:100000}") long maxSize,
+                        @Value("${balance-cache.ttl-seconds:30}") long ttlSeconds) {
+        this.enabled = enabled;
+        this.balances = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .build();
+        this.hits = Counter.builder("koinsave.balance.cache")
+                .description("Balance lookups by cache outcome")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("koinsave.balance.cache")
+                .description("Balance lookups by cache outcome")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("koinsave.balance.cache.size", balances, Cache::size)
+                .description("Balances currently cached")
+                .register(meterRegistry);
+    }
+
+    public Optional<BalanceResponse> get(Long userId) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        CachedBalance cached = balances.getIfPresent(userId);
+        BalanceResponse response = cached == null ? null : cached.response();
+        (response != null ? hits : misses).increment();
+        return Optional.ofNullable(response);
+    }
+
+    /**
+     * Taken by a reader before it queries the database, and passed back to {@link #put}.
+     */
+    public long readStamp() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Caches a balance unless the account was invalidated, or cached by a later read, after
+     * {@code readStamp}.
+     */
+    public void put(Long userId, BalanceResponse response, long readStamp) {
+        if (!enabled) {
+            return;
+        }
+        balances.asMap().merge(userId, new CachedBalance(readStamp, response),
+                (current, candidate) -> current.stamp() - candidate.stamp() >= 0 ? current : candidate);
+    }
+
+    /**
+     * Invalidates the given accounts once the current transaction commits. On rollback the
+     * cached entries still match the database and are left alone.
+     */
+    public void invalidateAfterCommit(Collection<Long> userIds) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(userIds);
+            return;
+        }
+        List<Long> touched = List.copyOf(userIds);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(touched);
+            }
+        });
+    }
+
+    private void invalidate(Collection<Long> userIds) {
+        for (Long userId : userIds) {
+            balances.put(userId, new CachedBalance(System.nanoTime(), null));
+        }
+    }
+
+    // A null response marks an invalidation that still fences off older reads
+    private record CachedBalance(long stamp, BalanceResponse response) {
+    }
+}
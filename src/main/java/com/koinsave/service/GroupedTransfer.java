@@ -0,0 +1,9 @@
+package com.koinsave.service;
+
+import com.koinsave.dto.request.TransferRequest;
+
+/**
+ * One caller's transfer inside a group applied by {@link TransactionServiceImpl#transferGroup}.
+ */
+public record GroupedTransfer(Long senderId, TransferRequest request) {
+}
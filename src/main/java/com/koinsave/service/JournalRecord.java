@@ -0,0 +1,139 @@
+package com.koinsave.service;
+
+import com.koinsave.dto.response.TransactionResponse;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.zip.CRC32C;
+
+/**
+ * One transfer in the {@link TransferJournal}, stored in a fixed {@value #SIZE}-byte slot:
+ *
+ * <pre>
+ *   0  int    magic
+ *   4  long   sequence
+ *  12  long   sender id
+ *  20  long   receiver id
+ *  28  long   amount in cents
+ *  36  long   created at, microseconds since the epoch (UTC)
+ *  44  short  idempotency key length in bytes, 0 without a key
+ *  46  byte[] request hash, SHA-256, zeroes without a key
+ *  78  short  description length in bytes
+ *  80  byte[] idempotency key, UTF-8, followed by the description, UTF-8
+ * 1020 int    CRC32C of bytes 0..1019
+ * </pre>
+ *
+ * A slot whose magic or checksum does not match was never completely written. The key and
+ * request hash let a replayed posting keep its {@code Idempotency-Key}; they share the text
+ * area with the description, so {@link #fits} checks both.
+ */
+public record JournalRecord(long sequence,
+                            Long senderId,
+                            Long receiverId,
+                            BigDecimal amount,
+                            String description,
+                            LocalDateTime createdAt,
+                            String idempotencyKey,
+                            String requestHash) {
+
+    public static final int SIZE = 1024;
+
+    private static final int MAGIC = 0x4B534A32;
+    private static final int HASH_OFFSET = 46;
+    private static final int HASH_BYTES = 32;
+    private static final int DESCRIPTION_LENGTH_OFFSET = HASH_OFFSET + HASH_BYTES;
+    private static final int TEXT_OFFSET = DESCRIPTION_LENGTH_OFFSET + Short.BYTES;
+    private static final int CRC_OFFSET = SIZE - Integer.BYTES;
+    private static final int MAX_TEXT_BYTES = CRC_OFFSET - TEXT_OFFSET;
+
+    public static boolean fits(String description, String idempotencyKey) {
+        int keyBytes = idempotencyKey == null ? 0 : idempotencyKey.getBytes(StandardCharsets.UTF_8).length;
+        return keyBytes + description.getBytes(StandardCharsets.UTF_8).length <= MAX_TEXT_BYTES;
+    }
+
+    public static JournalRecord of(long sequence, LedgerPosting posting) {
+        LedgerPosting.Idempotency idempotency = posting.idempotency();
+        return new JournalRecord(sequence, posting.senderId(), posting.receiverId(), posting.amount(),
+                posting.description(), posting.createdAt(),
+                idempotency == null ? null : idempotency.key(),
+                idempotency == null ? null : idempotency.requestHash());
+    }
+
+    /**
+     * {@code response} is what the transfer was answered with; only used when the record has an
+     * idempotency key.
+     */
+    public LedgerPosting toPosting(TransactionResponse response) {
+        LedgerPosting.Idempotency idempotency = idempotencyKey == null
+                ? null
+                : new LedgerPosting.Idempotency(idempotencyKey, requestHash, response);
+        return new LedgerPosting(senderId, receiverId, amount, description, createdAt, idempotency, sequence);
+    }
+
+    /**
+     * Encodes this record into {@code slot}, which must have {@value #SIZE} bytes remaining.
+     */
+    void writeTo(ByteBuffer slot) {
+        byte[] key = idempotencyKey == null ? new byte[0] : idempotencyKey.getBytes(StandardCharsets.UTF_8);
+        byte[] text = description.getBytes(StandardCharsets.UTF_8);
+        if (key.length + text.length > MAX_TEXT_BYTES) {
+            throw new IllegalArgumentException("Description does not fit in a journal record");
+        }
+        byte[] hash = requestHash == null ? new byte[HASH_BYTES] : HexFormat.of().parseHex(requestHash);
+        int start = slot.position();
+        slot.putInt(MAGIC)
+                .putLong(sequence)
+                .putLong(senderId)
+                .putLong(receiverId)
+                .putLong(amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact())
+                .putLong(ChronoUnit.MICROS.between(LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC), createdAt))
+                .putShort((short) key.length)
+                .put(hash)
+                .putShort((short) text.length)
+                .put(key)
+                .put(text);
+        slot.put(new byte[MAX_TEXT_BYTES - key.length - text.length]);
+
+        CRC32C crc = new CRC32C();
+        crc.update(slot.slice(start, CRC_OFFSET));
+        slot.putInt((int) crc.getValue());
+    }
+
+    /**
+     * Decodes the slot starting at {@code offset}, or returns null if it does not hold a
+     * complete record.
+     */
+    static JournalRecord readFrom(ByteBuffer buffer, int offset) {
+        if (buffer.getInt(offset) != MAGIC) {
+            return null;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(offset, CRC_OFFSET));
+        if ((int) crc.getValue() != buffer.getInt(offset + CRC_OFFSET)) {
+            return null;
+        }
+
+        byte[] key = new byte[buffer.getShort(offset + 44)];
+        buffer.get(offset + TEXT_OFFSET, key);
+        byte[] text = new byte[buffer.getShort(offset + DESCRIPTION_LENGTH_OFFSET)];
+        buffer.get(offset + TEXT_OFFSET + key.length, text);
+        byte[] hash = new byte[HASH_BYTES];
+        buffer.get(offset + HASH_OFFSET, hash);
+        boolean keyed = key.length > 0;
+        return new JournalRecord(
+                buffer.getLong(offset + 4),
+                buffer.getLong(offset + 12),
+                buffer.getLong(offset + 20),
+                BigDecimal.valueOf(buffer.getLong(offset + 28), 2),
+                new String(text, StandardCharsets.UTF_8),
+                LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC).plus(buffer.getLong(offset + 36), ChronoUnit.MICROS),
+                keyed ? new String(key, StandardCharsets.UTF_8) : null,
+                keyed ? HexFormat.of().formatHex(hash) : null);
+    }
+}
@@ -0,0 +1,103 @@
+package com.koinsave.service;
+
+import com.koinsave.dto.response.TransactionResponse;
+import com.koinsave.model.Transaction;
+import com.koinsave.model.User;
+import com.koinsave.repository.TransactionRepository;
+import com.koinsave.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes journaled postings that never reached the database, for example because the process
+ * stopped before {@link LedgerWriteBehind} drained its queue. Reads the journal from the
+ * checkpoint on, skips sequences that already have a {@code Transaction} row and persists the
+ * rest through the write-behind, which also moves the checkpoint. Balances follow once the
+ * {@link LedgerCompactor} has folded the new ledger entries in.
+ *
+ * <p>A replayed posting that carried an {@code Idempotency-Key} is stored with its key and a
+ * response rebuilt from the record, so a client retrying with that key after the crash gets
+ * the original transfer back instead of a second one.
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("'${transaction.engine:jpa}' == 'ledger' and ${journal.enabled:false}")
+public class JournalReplayer {
+
+    private final TransferJournal journal;
+    private final TransactionRepository transactionRepository;
+    private final UserRepository userRepository;
+    private final LedgerWriteBehind writeBehind;
+    private final int batchSize;
+
+    public JournalReplayer(TransferJournal journal,
+                           TransactionRepository transactionRepository,
+                           UserRepository userRepository,
+                           LedgerWriteBehind writeBehind,
+                           @Value("${ledger.write-behind.batch-size:500}") int batchSize) {
+        this.journal = journal;
+        this.transactionRepository = transactionRepository;
+        this.userRepository = userRepository;
+        this.writeBehind = writeBehind;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return the number of postings written to the database
+     */
+    public int replay() {
+        long checkpoint = journal.checkpoint();
+        Set<Long> persisted = new HashSet<>(transactionRepository.findJournalSequencesAfter(checkpoint));
+        List<LedgerPosting> batch = new ArrayList<>(batchSize);
+        List<Long> alreadyPersisted = new ArrayList<>();
+        int[] replayed = {0};
+
+        journal.forEach(checkpoint + 1, record -> {
+            if (persisted.contains(record.sequence())) {
+                alreadyPersisted.add(record.sequence());
+                return;
+            }
+            batch.add(record.toPosting(record.idempotencyKey() == null ? null : response(record)));
+            if (batch.size() == batchSize) {
+                writeBehind.persist(batch);
+                replayed[0] += batch.size();
+                batch.clear();
+            }
+        });
+        if (!batch.isEmpty()) {
+            writeBehind.persist(batch);
+            replayed[0] += batch.size();
+        }
+        journal.markPersisted(alreadyPersisted);
+
+        log.info("Replayed {} journaled transfers after checkpoint {}, {} were already persisted",
+                replayed[0], checkpoint, alreadyPersisted.size());
+        return replayed[0];
+    }
+
+    // The response the ledger answered with: it carries no transaction id, as the row did not exist yet
+    private TransactionResponse response(JournalRecord record) {
+        return new TransactionResponse(
+                null,
+                record.senderId(),
+                fullName(record.senderId()),
+                record.receiverId(),
+                fullName(record.receiverId()),
+                record.amount(),
+                record.description(),
+                Transaction.TransactionStatus.COMPLETED.toString(),
+                record.createdAt()
+        );
+    }
+
+    private String fullName(Long userId) {
+        return userRepository.findById(userId).map(User::getFullName).orElse(null);
+    }
+}
@@ -0,0 +1,146 @@
+package com.koinsave.service;
+
+import com.koinsave.model.LedgerEntry;
+import com.koinsave.repository.LedgerEntryRepository;
+import com.koinsave.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Folds unposted {@link LedgerEntry} rows into the materialized {@code User.balance} in the
+ * background. This is the only writer of balances, so transfers just append entries and never
+ * lock the receiver.
+ *
+ * <p>Each pass marks a batch of entries posted and applies their per-account sums in one
+ * transaction, so the spendable balance (stored balance plus unposted entries) never changes
+ * while an account is compacted. Balance updates take row locks; a transfer holding its sender
+ * lock therefore always reads a balance and an unposted sum that belong together.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "ledger.compaction.enabled", havingValue = "true", matchIfMissing = true)
+public class LedgerCompactor {
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long intervalMs;
+    private final long conflictBackoffMs;
+    private final Timer passTimer;
+    private final Counter compactedEntries;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    public LedgerCompactor(LedgerEntryRepository ledgerEntryRepository,
+                           UserRepository userRepository,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${ledger.compaction.batch-size:1000}") int batchSize,
+                           @Value("${ledger.compaction.interval-ms:1000}") long intervalMs,
+                           @Value("${ledger.compaction.conflict-backoff-ms:50}") long conflictBackoffMs) {
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.intervalMs = intervalMs;
+        this.conflictBackoffMs = conflictBackoffMs;
+        this.passTimer = Timer.builder("koinsave.ledger.compaction")
+                .description("Time to fold one batch of ledger entries into balances")
+                .register(meterRegistry);
+        this.compactedEntries = Counter.builder("koinsave.ledger.compaction.entries")
+                .description("Ledger entries folded into balances")
+                .register(meterRegistry);
+        this.worker = new Thread(this::compactLoop, "ledger-compactor");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    /**
+     * Folds up to one batch of unposted entries into balances.
+     *
+     * @return the number of entries folded
+     */
+    public int compact() {
+        Integer compacted = passTimer.record(() -> transactionTemplate.execute(status -> {
+            List<LedgerEntry> entries = ledgerEntryRepository.findByPostedFalseOrderByIdAsc(Limit.of(batchSize));
+            if (entries.isEmpty()) {
+                return 0;
+            }
+            List<Long> ids = entries.stream().map(LedgerEntry::getId).toList();
+            if (ledgerEntryRepository.markPosted(ids) != ids.size()) {
+                throw new ConcurrencyFailureException("Ledger entries were compacted concurrently");
+            }
+
+            // Ascending account order, so concurrent compactors cannot deadlock on user rows
+            Map<Long, BigDecimal> deltas = new TreeMap<>();
+            for (LedgerEntry entry : entries) {
+                deltas.merge(entry.getAccountId(), entry.getAmount(), BigDecimal::add);
+            }
+            deltas.forEach(userRepository::adjustBalance);
+            return entries.size();
+        }));
+        compactedEntries.increment(compacted);
+        return compacted;
+    }
+
+    private void compactLoop() {
+        while (running) {
+            try {
+                int compacted = compact();
+                if (compacted > 0) {
+                    log.debug("Compacted {} ledger entries", compacted);
+                }
+                // A full batch means a backlog, so carry on without waiting
+                if (compacted < batchSize) {
+                    Thread.sleep(intervalMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ConcurrencyFailureException e) {
+                log.debug("Ledger compaction pass conflicted, retrying: {}", e.getMessage());
+                // Jittered, so a hot account's transfers get a window before the next pass
+                backOff(ThreadLocalRandom.current().nextLong(conflictBackoffMs / 2, conflictBackoffMs + 1));
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                log.error("Ledger compaction pass failed", e);
+                backOff(intervalMs);
+            }
+        }
+    }
+
+    private void backOff(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
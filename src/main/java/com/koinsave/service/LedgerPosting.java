@@ -0,0 +1,30 @@
+package com.koinsave.service;
+
+import com.koinsave.dto.response.TransactionResponse;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A transfer that has been applied to the in-memory ledger and still has to be persisted.
+ * {@code idempotency} is only set for transfers submitted with an {@code Idempotency-Key};
+ * {@code journalSequence} is the posting's place in the {@link TransferJournal}, or
+ * {@link #NOT_JOURNALED} when the journal is disabled.
+ */
+public record LedgerPosting(Long senderId,
+                            Long receiverId,
+                            BigDecimal amount,
+                            String description,
+                            LocalDateTime createdAt,
+                            Idempotency idempotency,
+                            long journalSequence) {
+
+    public static final long NOT_JOURNALED = -1;
+
+    public LedgerPosting withJournalSequence(long sequence) {
+        return new LedgerPosting(senderId, receiverId, amount, description, createdAt, idempotency, sequence);
+    }
+
+    public record Idempotency(String key, String requestHash, TransactionResponse response) {
+    }
+}
@@ -0,0 +1,566 @@
+package com.koinsave.service;
+
+import com.koinsave.dto.request.BatchTransferRequest;
+import com.koinsave.dto.request.ExportFormat;
+import com.koinsave.dto.request.TransferRequest;
+import com.koinsave.dto.response.BalanceResponse;
+import com.koinsave.dto.response.BatchItemResult;
+import com.koinsave.dto.response.BatchTransferResponse;
+import com.koinsave.dto.response.TransactionPageResponse;
+import com.koinsave.dto.response.TransactionResponse;
+import com.koinsave.dto.response.TransferStatusResponse;
+import com.koinsave.exception.TransactionException;
+import com.koinsave.model.Transaction;
+import com.koinsave.model.User;
+import com.koinsave.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Keeps balances in memory, partitioned by user id. Every shard is owned by a single writer
+ * thread, so account state is never shared between threads and no locks are taken.
+ *
+ * <p>A transfer debits the sender on the sender's shard, then hands the credit to the
+ * receiver's shard before the caller is answered. Because each shard applies its queue in
+ * order, a balance read issued after a transfer returns always observes that transfer. A
+ * caller that times out withdraws its operation if the shard has not started it yet; only when
+ * it already runs is the client told to check their history before retrying.
+ * Completed transfers are persisted to the JPA tables by {@link LedgerWriteBehind}; the
+ * returned {@link TransactionResponse} therefore has no id yet.
+ *
+ * <p>Accounts listed in {@code ledger.hot-accounts.ids} receive too many credits for one shard
+ * thread. Their balance is split into slots on consecutive shards: slot 0 is the account on its
+ * home shard, the others hold only an amount. Credits go to a random slot, a debit that the home
+ * slot cannot cover first sweeps the other slots into it, and a balance read sums all slots.
+ * While a sweep is in flight a read may briefly miss the swept amount; debits never can.
+ *
+ * <p>With {@code journal.enabled}, every posting is appended to the {@link TransferJournal} on
+ * the sender's shard before any balance changes, and the caller is answered once the journal
+ * has it on disk. Postings the database did not get before a crash are replayed from the
+ * journal by {@link JournalReplayer} before the first account is loaded.
+ */
+@Slf4j
+@Primary
+@Service
+@ConditionalOnProperty(name = "transaction.engine", havingValue = "ledger")
+public class LedgerTransactionService implements TransactionService {
+
+    private static final long CREDIT_RETRY_DELAY_MS = 1000;
+    private static final int CREDIT_MAX_ATTEMPTS = 5;
+
+    private final UserRepository userRepository;
+    private final TransactionServiceImpl jpaTransactionService;
+    private final LedgerWriteBehind writeBehind;
+    private final TransferJournal journal;
+    private final long requestTimeoutMs;
+    private final Shard[] shards;
+    private final Map<Long, String> accountNames = new ConcurrentHashMap<>();
+    private final Set<Long> hotAccountIds;
+    private final int hotSlots;
+
+    // Hot accounts whose home slot is loaded; until then every credit goes to the home slot
+    private final Set<Long> loadedHotAccounts = ConcurrentHashMap.newKeySet();
+
+    public LedgerTransactionService(UserRepository userRepository,
+                                    TransactionServiceImpl jpaTransactionService,
+                                    LedgerWriteBehind writeBehind,
+                                    ObjectProvider<TransferJournal> journal,
+                                    ObjectProvider<JournalReplayer> replayer,
+                                    @Value("${ledger.shards:4}") int shardCount,
+                                    @Value("${ledger.request-timeout-ms:5000}") long requestTimeoutMs,
+                                    @Value("${ledger.hot-accounts.ids:}") Set<Long> hotAccountIds,
+                                    @Value("${ledger.hot-accounts.slots:8}") int hotSlots) {
+        this.userRepository = userRepository;
+        this.jpaTransactionService = jpaTransactionService;
+        this.writeBehind = writeBehind;
+        this.journal = journal.getIfAvailable();
+        this.requestTimeoutMs = requestTimeoutMs;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+        }
+        this.hotAccountIds = Set.copyOf(hotAccountIds);
+        // More slots than shards would put two slots of one account on the same thread
+        this.hotSlots = Math.max(1, Math.min(hotSlots, shardCount));
+        // Accounts are loaded from the database, so it must hold every journaled posting first
+        replayer.ifAvailable(JournalReplayer::replay);
+        writeBehind.onPersisted(this::forgetIdempotencyKeys);
+        log.info("In-memory ledger started with {} shards, {} hot accounts split into {} slots",
+                shardCount, this.hotAccountIds.size(), this.hotSlots);
+    }
+
+    @Override
+    public TransactionResponse transfer(Long senderId, TransferRequest request) {
+        return transfer(senderId, request, null);
+    }
+
+    /**
+     * Keys are deduplicated on the sender's shard, which applies all of the sender's transfers
+     * in order, and persisted together with the posting. The shard holds each key until the
+     * write-behind has committed it, and a little longer; from then on it is answered from the
+     * database by {@link TransferIdempotency} before it reaches the shard. With the journal
+     * enabled the key is journaled with the posting, so a replay after a crash stores it too.
+     */
+    @Override
+    public TransactionResponse transfer(Long senderId, TransferRequest request, String idempotencyKey) {
+        validateTransferRequest(senderId, request, idempotencyKey);
+        String requestHash = idempotencyKey == null ? null : TransferIdempotency.requestHash(request);
+        Shard shard = shardFor(senderId);
+        if (isHot(senderId)) {
+            TransactionResponse response = await(shard.submit(() ->
+                    debit(senderId, request, idempotencyKey, requestHash, false)));
+            if (response != null) {
+                return durable(response);
+            }
+            sweep(senderId);
+        }
+        return durable(await(shard.submit(() -> debit(senderId, request, idempotencyKey, requestHash, true))));
+    }
+
+    // The in-memory ledger already answers without waiting for the database, so there is
+    // nothing to queue: submitted transfers are applied straight away and returned COMPLETED
+    @Override
+    public TransactionResponse submitTransfer(Long senderId, TransferRequest request) {
+        return transfer(senderId, request);
+    }
+
+    @Override
+    public TransactionResponse submitTransfer(Long senderId, TransferRequest request, String idempotencyKey) {
+        return transfer(senderId, request, idempotencyKey);
+    }
+
+    @Override
+    public TransferStatusResponse getTransferStatus(Long userId, Long transactionId) {
+        return jpaTransactionService.getTransferStatus(userId, transactionId);
+    }
+
+    /**
+     * Every item in a batch debits the same sender, so the whole batch is decided on the
+     * sender's shard before any credit is handed to a receiver shard. Hot senders sweep their
+     * slots first.
+     */
+    @Override
+    public BatchTransferResponse transferBatch(Long senderId, BatchTransferRequest request) {
+        if (isHot(senderId)) {
+            sweep(senderId);
+        }
+        return durable(await(shardFor(senderId).submit(() -> debitBatch(senderId, request))));
+    }
+
+    @Override
+    public List<TransactionResponse> getUserTransactions(Long userId) {
+        return jpaTransactionService.getUserTransactions(userId);
+    }
+
+    @Override
+    public TransactionPageResponse getTransactionPage(Long userId, String cursor, Integer size) {
+        return jpaTransactionService.getTransactionPage(userId, cursor, size);
+    }
+
+    @Override
+    public void exportTransactions(Long userId, ExportFormat format, OutputStream outputStream) throws IOException {
+        jpaTransactionService.exportTransactions(userId, format, outputStream);
+    }
+
+    @Override
+    public BalanceResponse getBalance(Long userId) {
+        Shard shard = shardFor(userId);
+        BalanceResponse response = await(shard.submit(() -> {
+            Account account = shard.account(userId, "User not found");
+            return new BalanceResponse(account.balance, account.email, account.fullName);
+        }));
+        if (isHot(userId)) {
+            BigDecimal total = response.getBalance();
+            for (int slot = 1; slot < hotSlots; slot++) {
+                Shard slotShard = slotShard(userId, slot);
+                total = total.add(await(slotShard.submit(() -> slotShard.slotBalances.getOrDefault(userId, BigDecimal.ZERO))));
+            }
+            response.setBalance(total);
+        }
+        return response;
+    }
+
+    /**
+     * Waits until every shard has applied what was queued on it before the call, including the
+     * credits handed over by debits that were still queued. Credits waiting for a retry are not
+     * covered. Used by benchmarks, which need the credits and not just the debits to finish.
+     */
+    void drain() {
+        // The first round lets queued debits hand off their credits, the second applies them
+        for (int round = 0; round < 2; round++) {
+            for (Shard shard : shards) {
+                await(shard.submit(() -> null));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (Shard shard : shards) {
+            shard.executor.shutdown();
+        }
+        for (Shard shard : shards) {
+            shard.executor.awaitTermination(requestTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Returns {@code result} once everything journaled so far is on disk, which includes the
+     * postings behind it and, for a replayed idempotency key, the original posting. Waiting for
+     * the latest sequence rather than our own costs nothing extra, as the syncer forces the
+     * whole active segment in one call.
+     */
+    private <T> T durable(T result) {
+        if (journal != null) {
+            journal.awaitDurable(journal.lastSequence());
+        }
+        return result;
+    }
+
+    // Runs on the sender's shard thread. Returns null instead of failing when the home slot of a
+    // hot sender is short, so the caller can sweep and try again.
+    private TransactionResponse debit(Long senderId, TransferRequest request, String idempotencyKey,
+                                      String requestHash, boolean failIfShort) {
+        Shard shard = shardFor(senderId);
+        if (idempotencyKey != null) {
+            LedgerPosting.Idempotency previous = shard.idempotencyKeys.get(senderId + ":" + idempotencyKey);
+            if (previous != null) {
+                if (!previous.requestHash().equals(requestHash)) {
+                    throw new TransactionException(TransferIdempotency.KEY_REUSED_MESSAGE);
+                }
+                return previous.response();
+            }
+        }
+        Account sender = shard.account(senderId, "Sender not found");
+        String receiverName = receiverName(request.getReceiverId());
+
+        if (sender.balance.compareTo(request.getAmount()) < 0) {
+            if (!failIfShort) {
+                return null;
+            }
+            throw new TransactionException("Insufficient balance");
+        }
+        // Posted first, so a failed journal append leaves the balance untouched
+        TransactionResponse response = post(senderId, sender.fullName, receiverName, request, LocalDateTime.now(),
+                idempotencyKey, requestHash);
+        sender.balance = sender.balance.subtract(request.getAmount());
+        if (idempotencyKey != null) {
+            shard.idempotencyKeys.put(senderId + ":" + idempotencyKey,
+                    new LedgerPosting.Idempotency(idempotencyKey, requestHash, response));
+        }
+        return response;
+    }
+
+    // Runs on the sender's shard thread
+    private BatchTransferResponse debitBatch(Long senderId, BatchTransferRequest request) {
+        Account sender = shardFor(senderId).account(senderId, "Sender not found");
+        List<TransferRequest> items = request.getTransfers();
+        BatchItemResult[] results = new BatchItemResult[items.size()];
+        String[] receiverNames = new String[items.size()];
+        List<Integer> applied = new ArrayList<>();
+
+        BigDecimal available = sender.balance;
+        for (int i = 0; i < items.size(); i++) {
+            TransferRequest item = items.get(i);
+            try {
+                validateTransferRequest(senderId, item, null);
+                receiverNames[i] = receiverName(item.getReceiverId());
+                if (available.compareTo(item.getAmount()) < 0) {
+                    throw new TransactionException("Insufficient balance");
+                }
+                available = available.subtract(item.getAmount());
+                applied.add(i);
+            } catch (TransactionException e) {
+                results[i] = new BatchItemResult(i, BatchItemResult.ItemStatus.FAILED, null, e.getMessage());
+            }
+        }
+
+        int failed = items.size() - applied.size();
+        if (failed > 0 && request.getMode() == BatchTransferRequest.BatchMode.ALL_OR_NOTHING) {
+            for (int i : applied) {
+                results[i] = new BatchItemResult(i, BatchItemResult.ItemStatus.ROLLED_BACK, null,
+                        "Batch rolled back because another transfer failed");
+            }
+            return new BatchTransferResponse(request.getMode(), 0, items.size(), Arrays.asList(results));
+        }
+
+        LocalDateTime createdAt = LocalDateTime.now();
+        for (int i : applied) {
+            TransactionResponse response = post(senderId, sender.fullName, receiverNames[i], items.get(i), createdAt,
+                    null, null);
+            sender.balance = sender.balance.subtract(items.get(i).getAmount());
+            results[i] = new BatchItemResult(i, BatchItemResult.ItemStatus.COMPLETED, response, null);
+        }
+        return new BatchTransferResponse(request.getMode(), applied.size(), failed, Arrays.asList(results));
+    }
+
+    // Journals a debit the sender can cover and hands its credit to the receiver's shard; the caller then applies the debit
+    private TransactionResponse post(Long senderId, String senderName, String receiverName,
+                                     TransferRequest request, LocalDateTime createdAt,
+                                     String idempotencyKey, String requestHash) {
+        TransactionResponse response = new TransactionResponse(
+                null,
+                senderId,
+                senderName,
+                request.getReceiverId(),
+                receiverName,
+                request.getAmount(),
+                request.getDescription(),
+                Transaction.TransactionStatus.COMPLETED.toString(),
+                createdAt
+        );
+        LedgerPosting.Idempotency idempotency = idempotencyKey == null
+                ? null
+                : new LedgerPosting.Idempotency(idempotencyKey, requestHash, response);
+        LedgerPosting posting = new LedgerPosting(senderId, request.getReceiverId(), request.getAmount(),
+                request.getDescription(), createdAt, idempotency, LedgerPosting.NOT_JOURNALED);
+        LedgerPosting journaled = journal == null ? posting : posting.withJournalSequence(journal.append(posting));
+        int slot = creditSlot(journaled.receiverId());
+        Shard receiverShard = slotShard(journaled.receiverId(), slot);
+        receiverShard.executor.execute(() -> credit(receiverShard, journaled, slot, 1));
+        return response;
+    }
+
+    /**
+     * Runs on the thread of the receiving slot; the posting is only persisted once both sides are
+     * applied. The debit has already been acknowledged, so a credit that cannot be applied, for
+     * example because loading the receiver hit a database error, is tried again on the same
+     * shard rather than dropped. Until then the posting is not enqueued, so an account loaded in
+     * the meantime cannot already contain it. After {@code CREDIT_MAX_ATTEMPTS} tries, say for a
+     * receiver that has been deleted, the posting is handed to the write-behind as a dead letter.
+     */
+    private void credit(Shard shard, LedgerPosting posting, int slot, int attempt) {
+        try {
+            if (slot == 0) {
+                Account receiver = shard.account(posting.receiverId(), "Receiver not found");
+                receiver.balance = receiver.balance.add(posting.amount());
+                if (isHot(posting.receiverId())) {
+                    loadedHotAccounts.add(posting.receiverId());
+                }
+            } else {
+                shard.slotBalances.merge(posting.receiverId(), posting.amount(), BigDecimal::add);
+            }
+        } catch (RuntimeException e) {
+            if (attempt >= CREDIT_MAX_ATTEMPTS) {
+                log.error("Failed to credit {} to user {} after {} attempts, giving up",
+                        posting.amount(), posting.receiverId(), attempt, e);
+                writeBehind.deadLetter(posting, "Credit failed: " + e.getMessage());
+                return;
+            }
+            log.error("Failed to credit {} to user {} (attempt {} of {}), retrying in {} ms",
+                    posting.amount(), posting.receiverId(), attempt, CREDIT_MAX_ATTEMPTS, CREDIT_RETRY_DELAY_MS, e);
+            CompletableFuture.delayedExecutor(CREDIT_RETRY_DELAY_MS, TimeUnit.MILLISECONDS, shard.executor)
+                    .execute(() -> credit(shard, posting, slot, attempt + 1));
+            return;
+        }
+        writeBehind.enqueue(posting);
+    }
+
+    /**
+     * Drops the keys of a committed batch from their senders' shards. The removal waits out one
+     * request timeout so that a retry which missed the key in the database just before the
+     * commit still finds it on the shard.
+     */
+    private void forgetIdempotencyKeys(List<LedgerPosting> persisted) {
+        for (LedgerPosting posting : persisted) {
+            if (posting.idempotency() == null) {
+                continue;
+            }
+            Shard shard = shardFor(posting.senderId());
+            String key = posting.senderId() + ":" + posting.idempotency().key();
+            CompletableFuture.delayedExecutor(requestTimeoutMs, TimeUnit.MILLISECONDS, shard.executor)
+                    .execute(() -> shard.idempotencyKeys.remove(key));
+        }
+    }
+
+    private boolean isHot(Long userId) {
+        return hotSlots > 1 && hotAccountIds.contains(userId);
+    }
+
+    // Slot amounts are only valid on top of a loaded home slot, otherwise loading it from the
+    // database would count persisted credits twice
+    private int creditSlot(Long receiverId) {
+        if (!isHot(receiverId) || !loadedHotAccounts.contains(receiverId)) {
+            return 0;
+        }
+        return ThreadLocalRandom.current().nextInt(hotSlots);
+    }
+
+    /**
+     * Moves every other slot of a hot account into its home slot. Each slot shard empties its
+     * slot and hands the amount straight to the home shard, so no shard thread ever waits on
+     * another one; the caller only waits until the hand-offs are queued, which puts them ahead
+     * of anything it submits to the home shard afterwards.
+     */
+    private void sweep(Long userId) {
+        Shard home = shardFor(userId);
+        List<CompletableFuture<Void>> handOffs = new ArrayList<>(hotSlots - 1);
+        for (int slot = 1; slot < hotSlots; slot++) {
+            Shard slotShard = slotShard(userId, slot);
+            handOffs.add(CompletableFuture.runAsync(() -> {
+                BigDecimal amount = slotShard.slotBalances.remove(userId);
+                if (amount != null) {
+                    home.executor.execute(() -> {
+                        Account account = home.account(userId, "User not found");
+                        account.balance = account.balance.add(amount);
+                    });
+                }
+            }, slotShard.executor));
+        }
+        await(CompletableFuture.allOf(handOffs.toArray(CompletableFuture[]::new)));
+    }
+
+    private void validateTransferRequest(Long senderId, TransferRequest request, String idempotencyKey) {
+        if (senderId.equals(request.getReceiverId())) {
+            throw new TransactionException("Cannot transfer to yourself");
+        }
+        if (request.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            throw new TransactionException("Amount must be greater than zero");
+        }
+        if (journal != null && !JournalRecord.fits(request.getDescription(), idempotencyKey)) {
+            throw new TransactionException("Description is too long");
+        }
+    }
+
+    private String receiverName(Long receiverId) {
+        String name = accountNames.get(receiverId);
+        if (name == null) {
+            name = userRepository.findById(receiverId)
+                    .map(User::getFullName)
+                    .orElseThrow(() -> new TransactionException("Receiver not found"));
+            accountNames.put(receiverId, name);
+        }
+        return name;
+    }
+
+    private Shard shardFor(Long userId) {
+        return slotShard(userId, 0);
+    }
+
+    private Shard slotShard(Long userId, int slot) {
+        return shards[Math.floorMod(userId.hashCode() + slot, shards.length)];
+    }
+
+    private <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get(requestTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Ledger operation failed", e.getCause());
+        } catch (TimeoutException e) {
+            throw abandon(future);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandon(future);
+            throw new TransactionException("Ledger operation interrupted");
+        }
+    }
+
+    // An operation withdrawn before its shard started it was never applied, so retrying is safe;
+    // one already running may still apply after the caller has given up on it
+    private static TransactionException abandon(CompletableFuture<?> future) {
+        if (future instanceof ShardTask<?> task && task.withdraw()) {
+            return new TransactionException("Ledger is busy, please retry");
+        }
+        return new TransactionException("Ledger is busy, please check your history before retrying");
+    }
+
+    /**
+     * The result of an operation queued on a shard. Whichever comes first, the shard thread
+     * starting it or the caller withdrawing it after a timeout, decides whether it runs at all.
+     */
+    private static final class ShardTask<T> extends CompletableFuture<T> {
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private void run(Supplier<T> operation) {
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                complete(operation.get());
+            } catch (Throwable e) {
+                completeExceptionally(e);
+            }
+        }
+
+        private boolean withdraw() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+
+    private static final class Account {
+        private final String email;
+        private final String fullName;
+        private BigDecimal balance;
+
+        private Account(BalanceResponse stored) {
+            this.email = stored.getEmail();
+            this.fullName = stored.getFullName();
+            this.balance = stored.getBalance();
+        }
+    }
+
+    private final class Shard {
+        private final ExecutorService executor;
+        private final Map<Long, Account> accounts = new HashMap<>();
+        // Amounts held in this shard's slot of hot accounts homed on other shards
+        private final Map<Long, BigDecimal> slotBalances = new HashMap<>();
+        // Idempotency keys of senders homed here that the write-behind has not committed yet
+        private final Map<String, LedgerPosting.Idempotency> idempotencyKeys = new HashMap<>();
+
+        private Shard(int index) {
+            this.executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ledger-shard-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        private <T> CompletableFuture<T> submit(Supplier<T> operation) {
+            ShardTask<T> task = new ShardTask<>();
+            executor.execute(() -> task.run(operation));
+            return task;
+        }
+
+        // Accounts are loaded on first use; after that this shard is the only writer of the balance
+        private Account account(Long userId, String notFoundMessage) {
+            Account account = accounts.get(userId);
+            if (account == null) {
+                // Includes ledger entries the compactor has not folded into the stored balance yet
+                account = userRepository.findBalance(userId)
+                        .map(Account::new)
+                        .orElseThrow(() -> new TransactionException(notFoundMessage));
+                accounts.put(userId, account);
+            }
+            return account;
+        }
+    }
+}
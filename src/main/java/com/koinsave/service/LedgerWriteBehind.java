@@ -0,0 +1,325 @@
+package com.koinsave.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.koinsave.model.IdempotencyRecord;
+import com.koinsave.model.LedgerDeadLetter;
+import com.koinsave.model.LedgerEntry;
+import com.koinsave.model.Transaction;
+import com.koinsave.repository.IdempotencyRecordRepository;
+import com.koinsave.repository.LedgerDeadLetterRepository;
+import com.koinsave.repository.LedgerEntryRepository;
+import com.koinsave.repository.TransactionRepository;
+import com.koinsave.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Persists postings from the in-memory ledger in the background. Each drained batch is
+ * written in one database transaction: one {@link Transaction} row and its debit and credit
+ * {@link LedgerEntry} rows per posting, plus its {@link IdempotencyRecord} when the transfer
+ * carried an {@code Idempotency-Key}. User balances are folded in later by the
+ * {@link LedgerCompactor}, like those of any other transfer.
+ *
+ * <p>Journaled postings carry their sequence into {@code Transaction.journalSequence}, and the
+ * {@link TransferJournal} is told about them once the batch has committed so its checkpoint can
+ * move past them. The listener registered with {@link #onPersisted} is told as well, which is
+ * when the ledger stops holding the batch's idempotency keys in memory.
+ *
+ * <p>An idempotency key that is already stored is skipped rather than inserted, so it cannot
+ * roll back the postings of its batch on every retry.
+ *
+ * <p>A batch that still fails after {@code ledger.write-behind.max-attempts} tries is split and
+ * its postings persisted one at a time. A posting that fails on its own, and any credit the
+ * ledger could not apply, is moved to {@link LedgerDeadLetter} and counted in
+ * {@code koinsave.ledger.dead_letters}, so one bad posting never holds up the ones behind it.
+ * Only when even the dead letter cannot be written, which means the database is unreachable,
+ * does the writer keep retrying; on shutdown it then stops and leaves the rest to the journal.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "transaction.engine", havingValue = "ledger")
+public class LedgerWriteBehind {
+
+    private final UserRepository userRepository;
+    private final TransactionRepository transactionRepository;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final TransferJournal journal;
+    private final TransactionTemplate transactionTemplate;
+    private final LedgerDeadLetterRepository deadLetterRepository;
+    private final Counter deadLettered;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final BlockingQueue<LedgerPosting> queue = new LinkedBlockingQueue<>();
+    private final BlockingQueue<LedgerDeadLetter> deadLetters = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile Consumer<List<LedgerPosting>> persistedListener = batch -> { };
+
+    public LedgerWriteBehind(UserRepository userRepository,
+                             TransactionRepository transactionRepository,
+                             LedgerEntryRepository ledgerEntryRepository,
+                             IdempotencyRecordRepository idempotencyRecordRepository,
+                             LedgerDeadLetterRepository deadLetterRepository,
+                             ObjectMapper objectMapper,
+                             ObjectProvider<TransferJournal> journal,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${ledger.write-behind.batch-size:500}") int batchSize,
+                             @Value("${ledger.write-behind.max-attempts:5}") int maxAttempts) {
+        this.userRepository = userRepository;
+        this.transactionRepository = transactionRepository;
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.deadLetterRepository = deadLetterRepository;
+        this.objectMapper = objectMapper;
+        this.journal = journal.getIfAvailable();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.deadLettered = Counter.builder("koinsave.ledger.dead_letters")
+                .description("Ledger postings that could not be persisted and were set aside")
+                .register(meterRegistry);
+        this.writer = new Thread(this::drainLoop, "ledger-write-behind");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public void enqueue(LedgerPosting posting) {
+        queue.add(posting);
+    }
+
+    // For postings the ledger itself gave up on, such as a credit to a receiver that is gone
+    public void deadLetter(LedgerPosting posting, String error) {
+        deadLetters.add(toDeadLetter(posting, error));
+    }
+
+    // Called on the writer thread after each committed batch
+    public void onPersisted(Consumer<List<LedgerPosting>> listener) {
+        this.persistedListener = listener;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    private void drainLoop() {
+        List<LedgerPosting> batch = new ArrayList<>(batchSize);
+        int failures = 0;
+        while (running || !queue.isEmpty() || !batch.isEmpty() || !deadLetters.isEmpty()) {
+            try {
+                writeDeadLetters();
+                if (batch.isEmpty()) {
+                    LedgerPosting first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                }
+                persist(batch);
+                batch.clear();
+                failures = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                if (!running) {
+                    log.error("Stopping with {} ledger postings not persisted", batch.size() + queue.size(), e);
+                    return;
+                }
+                if (++failures < maxAttempts) {
+                    // Keep the batch and try again; balances in memory are already authoritative
+                    log.error("Failed to persist {} ledger postings (attempt {} of {}), retrying",
+                            batch.size(), failures, maxAttempts, e);
+                    backOff();
+                    continue;
+                }
+                log.error("Failed to persist {} ledger postings {} times, persisting them one by one",
+                        batch.size(), failures, e);
+                batch = persistIndividually(batch);
+                failures = 0;
+                if (!batch.isEmpty()) {
+                    backOff();
+                }
+            }
+        }
+    }
+
+    // Returns the postings still to do if the database stopped accepting even dead letters
+    private List<LedgerPosting> persistIndividually(List<LedgerPosting> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            LedgerPosting posting = batch.get(i);
+            try {
+                persist(List.of(posting));
+            } catch (Exception e) {
+                try {
+                    saveDeadLetters(List.of(toDeadLetter(posting, String.valueOf(e.getMessage()))));
+                } catch (Exception unreachable) {
+                    log.error("Failed to set aside a ledger posting, retrying later", unreachable);
+                    return new ArrayList<>(batch.subList(i, batch.size()));
+                }
+            }
+        }
+        return new ArrayList<>(batchSize);
+    }
+
+    private void writeDeadLetters() {
+        if (deadLetters.isEmpty()) {
+            return;
+        }
+        List<LedgerDeadLetter> pending = new ArrayList<>();
+        deadLetters.drainTo(pending);
+        try {
+            saveDeadLetters(pending);
+        } catch (RuntimeException e) {
+            deadLetters.addAll(pending);
+            throw e;
+        }
+    }
+
+    private void saveDeadLetters(List<LedgerDeadLetter> letters) {
+        transactionTemplate.executeWithoutResult(status -> deadLetterRepository.saveAll(letters));
+        for (LedgerDeadLetter letter : letters) {
+            log.error("Ledger posting of {} from user {} to user {} set aside as dead letter {}: {}",
+                    letter.getAmount(), letter.getSenderId(), letter.getReceiverId(), letter.getId(), letter.getError());
+        }
+        deadLettered.increment(letters.size());
+        markJournaled(letters.stream()
+                .map(LedgerDeadLetter::getJournalSequence)
+                .filter(Objects::nonNull)
+                .toList());
+    }
+
+    void persist(List<LedgerPosting> batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Transaction> transactions = new ArrayList<>(batch.size());
+            for (LedgerPosting posting : batch) {
+                transactions.add(toTransaction(posting));
+            }
+            transactionRepository.saveAll(transactions);
+
+            List<LedgerEntry> entries = new ArrayList<>(transactions.size() * 2);
+            for (Transaction transaction : transactions) {
+                entries.add(LedgerEntry.debit(transaction));
+                entries.add(LedgerEntry.credit(transaction));
+            }
+            ledgerEntryRepository.saveAll(entries);
+
+            List<IdempotencyRecord> keys = new ArrayList<>();
+            Set<String> seen = new HashSet<>();
+            for (LedgerPosting posting : batch) {
+                LedgerPosting.Idempotency idempotency = posting.idempotency();
+                if (idempotency == null) {
+                    continue;
+                }
+                if (!seen.add(posting.senderId() + ":" + idempotency.key())
+                        || idempotencyRecordRepository.findByUserIdAndIdempotencyKey(
+                                posting.senderId(), idempotency.key()).isPresent()) {
+                    log.error("Idempotency-Key {} of user {} is already stored; its posting was applied again",
+                            idempotency.key(), posting.senderId());
+                    continue;
+                }
+                keys.add(toIdempotencyRecord(posting));
+            }
+            idempotencyRecordRepository.saveAll(keys);
+        });
+        log.debug("Persisted {} ledger postings", batch.size());
+
+        List<Long> sequences = new ArrayList<>(batch.size());
+        for (LedgerPosting posting : batch) {
+            if (posting.journalSequence() != LedgerPosting.NOT_JOURNALED) {
+                sequences.add(posting.journalSequence());
+            }
+        }
+        markJournaled(sequences);
+        try {
+            persistedListener.accept(List.copyOf(batch));
+        } catch (RuntimeException e) {
+            // The batch is committed; failing here would only make the loop persist it again
+            log.warn("Persisted-postings listener failed", e);
+        }
+    }
+
+    private void markJournaled(List<Long> sequences) {
+        if (journal != null && !sequences.isEmpty()) {
+            journal.markPersisted(sequences);
+        }
+    }
+
+    private void backOff() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Transaction toTransaction(LedgerPosting posting) {
+        Transaction transaction = new Transaction();
+        transaction.setSender(userRepository.getReferenceById(posting.senderId()));
+        transaction.setReceiver(userRepository.getReferenceById(posting.receiverId()));
+        transaction.setAmount(posting.amount());
+        transaction.setDescription(posting.description());
+        transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+        transaction.setCreatedAt(posting.createdAt());
+        if (posting.journalSequence() != LedgerPosting.NOT_JOURNALED) {
+            transaction.setJournalSequence(posting.journalSequence());
+        }
+        return transaction;
+    }
+
+    private static LedgerDeadLetter toDeadLetter(LedgerPosting posting, String error) {
+        LedgerDeadLetter letter = new LedgerDeadLetter();
+        letter.setSenderId(posting.senderId());
+        letter.setReceiverId(posting.receiverId());
+        letter.setAmount(posting.amount());
+        letter.setDescription(truncate(posting.description()));
+        letter.setIdempotencyKey(posting.idempotency() == null ? null : posting.idempotency().key());
+        if (posting.journalSequence() != LedgerPosting.NOT_JOURNALED) {
+            letter.setJournalSequence(posting.journalSequence());
+        }
+        letter.setError(truncate(error));
+        letter.setCreatedAt(posting.createdAt());
+        return letter;
+    }
+
+    private static String truncate(String text) {
+        return text == null || text.length() <= 1024 ? text : text.substring(0, 1024);
+    }
+
+    private IdempotencyRecord toIdempotencyRecord(LedgerPosting posting) {
+        LedgerPosting.Idempotency idempotency = posting.idempotency();
+        IdempotencyRecord record = IdempotencyRecord.claim(posting.senderId(), idempotency.key(), idempotency.requestHash());
+        try {
+            record.setResponse(objectMapper.writeValueAsString(idempotency.response()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Transfer response could not be serialized", e);
+        }
+        record.setCreatedAt(posting.createdAt());
+        return record;
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.koinsave.service;
+
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The retry policy of every transaction that moves money: attempts rolled back by a lock
+ * timeout, deadlock, serialization failure or version conflict are retried with jittered
+ * exponential backoff, as configured under {@code transfer.retry}, and counted by
+ * {@link TransferRetryListener}. Put it next to {@code @Transactional} so each attempt runs in
+ * a fresh transaction.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Retryable(
+        retryFor = ConcurrencyFailureException.class,
+        maxAttemptsExpression = "${transfer.retry.max-attempts:4}",
+        backoff = @Backoff(
+                delayExpression = "${transfer.retry.initial-delay-ms:20}",
+                maxDelayExpression = "${transfer.retry.max-delay-ms:200}",
+                multiplier = 2,
+                random = true),
+        listeners = "transferRetryListener")
+public @interface RetryOnLockConflict {
+}
@@ -1,13 +1,27 @@
 package com.koinsave.service;
 
+import com.koinsave.dto.request.BatchTransferRequest;
+import com.koinsave.dto.request.ExportFormat;
 import com.koinsave.dto.request.TransferRequest;
 import com.koinsave.dto.response.BalanceResponse;
+import com.koinsave.dto.response.BatchTransferResponse;
+import com.koinsave.dto.response.TransactionPageResponse;
 import com.koinsave.dto.response.TransactionResponse;
+import com.koinsave.dto.response.TransferStatusResponse;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface TransactionService {
     TransactionResponse transfer(Long SenderId,TransferRequest transferRequest);
+    TransactionResponse transfer(Long senderId, TransferRequest transferRequest, String idempotencyKey);
+    TransactionResponse submitTransfer(Long senderId, TransferRequest transferRequest);
+    TransactionResponse submitTransfer(Long senderId, TransferRequest transferRequest, String idempotencyKey);
+    TransferStatusResponse getTransferStatus(Long userId, Long transactionId);
+    BatchTransferResponse transferBatch(Long senderId, BatchTransferRequest batchTransferRequest);
     List<TransactionResponse> getUserTransactions(Long userId);
+    TransactionPageResponse getTransactionPage(Long userId, String cursor, Integer size);
+    void exportTransactions(Long userId, ExportFormat format, OutputStream outputStream) throws IOException;
     BalanceResponse getBalance(Long userId);
 }
@@ -1,20 +1,58 @@
 package com.koinsave.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.koinsave.dto.request.BatchTransferRequest;
+import com.koinsave.dto.request.ExportFormat;
 import com.koinsave.dto.request.TransferRequest;
 import com.koinsave.dto.response.BalanceResponse;
+import com.koinsave.dto.response.BatchItemResult;
+import com.koinsave.dto.response.BatchTransferResponse;
+import com.koinsave.dto.response.TransactionPageResponse;
 import com.koinsave.dto.response.TransactionResponse;
+import com.koinsave.dto.response.TransferStatusResponse;
 import com.koinsave.exception.TransactionException;
+import com.koinsave.model.IdempotencyRecord;
+import com.koinsave.model.LedgerEntry;
 import com.koinsave.model.Transaction;
 import com.koinsave.model.User;
+import com.koinsave.repository.IdempotencyRecordRepository;
+import com.koinsave.repository.LedgerEntryRepository;
 import com.koinsave.repository.TransactionRepository;
 import com.koinsave.repository.UserRepository;
+import com.koinsave.service.TransferMetrics.Stage;
+import com.koinsave.util.HistoryCursor;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -22,45 +60,385 @@ public class TransactionServiceImpl implements TransactionService {
 
     private final TransactionRepository transactionRepository;
     private final UserRepository userRepository;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final TransferMetrics transferMetrics;
+    private final BalanceCache balanceCache;
+    private final TransferContention transferContention;
 
+    private static final int EXPORT_FLUSH_INTERVAL = 1000;
+    private static final String CSV_HEADER =
+            "id,senderId,senderName,receiverId,receiverName,amount,description,status,createdAt";
+
+    private static final Comparator<TransactionResponse> NEWEST_FIRST =
+            Comparator.comparing(TransactionResponse::getCreatedAt).thenComparing(TransactionResponse::getId).reversed();
+
+    @Value("${history.page-size.default:50}")
+    private int defaultPageSize;
+
+    @Value("${history.page-size.max:200}")
+    private int maxPageSize;
+
+    @RetryOnLockConflict
     @Transactional
     public TransactionResponse transfer(Long senderId, TransferRequest request) {
+        long mark = System.nanoTime();
         validateTransferRequest(senderId, request);
+        mark = transferMetrics.record(Stage.VALIDATION, mark);
 
-        User sender = userRepository.findByIdForUpdate(senderId)
-                .orElseThrow(() -> new TransactionException("Sender not found"));
-        User receiver = userRepository.findByIdForUpdate(request.getReceiverId())
+        // Only the sender is guarded, to serialize its debits; the receiver is only credited
+        boolean optimistic = transferContention.useOptimistic(senderId);
+        User sender = readSender(senderId, optimistic);
+        mark = transferMetrics.record(Stage.SENDER_LOCK, mark);
+        User receiver = userRepository.findById(request.getReceiverId())
                 .orElseThrow(() -> new TransactionException("Receiver not found"));
+        mark = transferMetrics.record(Stage.RECEIVER_LOOKUP, mark);
+
+        validateTransferAmount(availableBalance(sender), request.getAmount());
+        mark = transferMetrics.record(Stage.BALANCE_CHECK, mark);
+
+        Transaction savedTransaction = transactionRepository.save(createTransaction(sender, receiver, request));
+        ledgerEntryRepository.saveAll(List.of(LedgerEntry.debit(savedTransaction), LedgerEntry.credit(savedTransaction)));
+        if (optimistic) {
+            checkSenderVersion(sender);
+        }
+        balanceCache.invalidateAfterCommit(List.of(senderId, receiver.getId()));
+        mark = transferMetrics.record(Stage.INSERT, mark);
 
-        validateTransferAmount(sender, request.getAmount());
+        TransactionResponse response = mapToResponse(savedTransaction);
+        transferMetrics.record(Stage.MAPPING, mark);
+        return response;
+    }
 
-        updateBalances(sender, receiver, request.getAmount());
+    /**
+     * Same as {@link #transfer(Long, TransferRequest)}, recording the response under the key in
+     * the same database transaction. The key is claimed before the sender is read, so a
+     * concurrent duplicate waits on the unique index rather than on the sender's row, and fails
+     * once this transaction commits.
+     */
+    @RetryOnLockConflict
+    @Transactional
+    public TransactionResponse transfer(Long senderId, TransferRequest request, String idempotencyKey) {
+        return withIdempotencyKey(senderId, request, idempotencyKey, () -> transfer(senderId, request));
+    }
+
+    /**
+     * Queues a transfer for {@link #processPending(Long)} and returns it as {@code PENDING}.
+     * Nothing is locked: the sender's balance is only checked when a worker settles it, and
+     * the queue is the transactions table itself, so an accepted transfer survives a restart.
+     */
+    @Transactional
+    public TransactionResponse submitTransfer(Long senderId, TransferRequest request) {
+        validateTransferRequest(senderId, request);
+        User sender = userRepository.findById(senderId)
+                .orElseThrow(() -> new TransactionException("Sender not found"));
+        User receiver = userRepository.findById(request.getReceiverId())
+                .orElseThrow(() -> new TransactionException("Receiver not found"));
 
         Transaction transaction = createTransaction(sender, receiver, request);
-        Transaction savedTransaction = transactionRepository.save(transaction);
+        transaction.setStatus(Transaction.TransactionStatus.PENDING);
+        return mapToResponse(transactionRepository.save(transaction));
+    }
+
+    @Transactional
+    public TransactionResponse submitTransfer(Long senderId, TransferRequest request, String idempotencyKey) {
+        return withIdempotencyKey(senderId, request, idempotencyKey, () -> submitTransfer(senderId, request));
+    }
+
+    /**
+     * Settles one queued transfer as COMPLETED, appending its ledger entries, or as FAILED with
+     * the reason. Returns false if it was no longer pending. Two workers settling the same
+     * transfer are serialized on the sender, and the loser is rolled back by the status check.
+     */
+    @RetryOnLockConflict
+    @Transactional
+    public boolean processPending(Long transactionId) {
+        Transaction transaction = transactionRepository.findById(transactionId).orElse(null);
+        if (transaction == null || transaction.getStatus() != Transaction.TransactionStatus.PENDING) {
+            return false;
+        }
+
+        Long senderId = transaction.getSender().getId();
+        boolean optimistic = transferContention.useOptimistic(senderId);
+        User sender = readSender(senderId, optimistic);
+        Transaction.TransactionStatus status = Transaction.TransactionStatus.COMPLETED;
+        String failureReason = null;
+        if (availableBalance(sender).compareTo(transaction.getAmount()) < 0) {
+            status = Transaction.TransactionStatus.FAILED;
+            failureReason = "Insufficient balance";
+        } else {
+            ledgerEntryRepository.saveAll(List.of(LedgerEntry.debit(transaction), LedgerEntry.credit(transaction)));
+            if (optimistic) {
+                checkSenderVersion(sender);
+            }
+            balanceCache.invalidateAfterCommit(List.of(senderId, transaction.getReceiver().getId()));
+        }
+
+        if (transactionRepository.settlePending(transactionId, status, failureReason, LocalDateTime.now()) == 0) {
+            throw new ConcurrencyFailureException("Transfer " + transactionId + " was settled concurrently");
+        }
+        return true;
+    }
 
-        return mapToResponse(savedTransaction);
+    /**
+     * Settles a queued transfer as FAILED without touching any balance, for transfers that
+     * {@link #processPending(Long)} can never settle. Returns false if it was no longer pending.
+     */
+    @Transactional
+    public boolean failPending(Long transactionId, String failureReason) {
+        return transactionRepository.settlePending(transactionId, Transaction.TransactionStatus.FAILED,
+                failureReason, LocalDateTime.now()) > 0;
+    }
+
+    @Transactional(readOnly = true)
+    public TransferStatusResponse getTransferStatus(Long userId, Long transactionId) {
+        Transaction transaction = transactionRepository.findById(transactionId)
+                .filter(t -> userId.equals(t.getSender().getId()) || userId.equals(t.getReceiver().getId()))
+                .orElseThrow(() -> new TransactionException("Transaction not found"));
+        return new TransferStatusResponse(
+                transaction.getId(),
+                transaction.getSender().getId(),
+                transaction.getReceiver().getId(),
+                transaction.getAmount(),
+                transaction.getStatus().toString(),
+                transaction.getFailureReason(),
+                transaction.getCreatedAt(),
+                transaction.getProcessedAt()
+        );
+    }
+
+    /**
+     * Applies a batch of transfers from one sender in a single database transaction. Only the
+     * sender is locked, its available balance is worked out in memory, and the resulting
+     * transactions and ledger entries are written as JDBC batches. In {@code ALL_OR_NOTHING}
+     * mode a single failing item writes nothing.
+     */
+    @RetryOnLockConflict
+    @Transactional
+    public BatchTransferResponse transferBatch(Long senderId, BatchTransferRequest request) {
+        List<TransferRequest> items = request.getTransfers();
+        BatchItemResult[] results = new BatchItemResult[items.size()];
+
+        Set<Long> receiverIds = new HashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            try {
+                validateTransferRequest(senderId, items.get(i));
+                receiverIds.add(items.get(i).getReceiverId());
+            } catch (TransactionException e) {
+                results[i] = failedItem(i, e.getMessage());
+            }
+        }
+
+        boolean optimistic = transferContention.useOptimistic(senderId);
+        User sender = readSender(senderId, optimistic);
+        Map<Long, User> receivers = userRepository.findAllById(receiverIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        BigDecimal available = availableBalance(sender);
+        List<Integer> applied = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            TransferRequest item = items.get(i);
+            if (!receivers.containsKey(item.getReceiverId())) {
+                results[i] = failedItem(i, "Receiver not found");
+            } else if (available.compareTo(item.getAmount()) < 0) {
+                results[i] = failedItem(i, "Insufficient balance");
+            } else {
+                available = available.subtract(item.getAmount());
+                applied.add(i);
+            }
+        }
+
+        int failed = items.size() - applied.size();
+        if (failed > 0 && request.getMode() == BatchTransferRequest.BatchMode.ALL_OR_NOTHING) {
+            for (int i : applied) {
+                results[i] = new BatchItemResult(i, BatchItemResult.ItemStatus.ROLLED_BACK, null,
+                        "Batch rolled back because another transfer failed");
+            }
+            return new BatchTransferResponse(request.getMode(), 0, items.size(), Arrays.asList(results));
+        }
+
+        LocalDateTime createdAt = LocalDateTime.now();
+        List<Transaction> transactions = new ArrayList<>(applied.size());
+        Set<Long> touched = new HashSet<>();
+        touched.add(senderId);
+        for (int i : applied) {
+            Transaction transaction = createTransaction(sender, receivers.get(items.get(i).getReceiverId()), items.get(i));
+            transaction.setCreatedAt(createdAt);
+            transactions.add(transaction);
+            touched.add(transaction.getReceiver().getId());
+        }
+        transactionRepository.saveAll(transactions);
+
+        List<LedgerEntry> entries = new ArrayList<>(transactions.size() * 2);
+        for (Transaction transaction : transactions) {
+            entries.add(LedgerEntry.debit(transaction));
+            entries.add(LedgerEntry.credit(transaction));
+        }
+        ledgerEntryRepository.saveAll(entries);
+        if (optimistic) {
+            checkSenderVersion(sender);
+        }
+        balanceCache.invalidateAfterCommit(touched);
+
+        for (int n = 0; n < applied.size(); n++) {
+            int i = applied.get(n);
+            results[i] = new BatchItemResult(i, BatchItemResult.ItemStatus.COMPLETED,
+                    mapToResponse(transactions.get(n)), null);
+        }
+        return new BatchTransferResponse(request.getMode(), applied.size(), failed, Arrays.asList(results));
+    }
+
+    /**
+     * Applies transfers from different callers in one database transaction, so they share a
+     * single commit. Every sender is locked up front in ascending id order, which keeps
+     * concurrent groups from deadlocking. Each transfer is checked on its own, in order; one that
+     * fails is reported in its result and does not affect the others.
+     */
+    @RetryOnLockConflict
+    @Transactional
+    public List<BatchItemResult> transferGroup(List<GroupedTransfer> transfers) {
+        BatchItemResult[] results = new BatchItemResult[transfers.size()];
+        Set<Long> senderIds = new HashSet<>();
+        Set<Long> receiverIds = new HashSet<>();
+        for (int i = 0; i < transfers.size(); i++) {
+            GroupedTransfer transfer = transfers.get(i);
+            try {
+                validateTransferRequest(transfer.senderId(), transfer.request());
+                senderIds.add(transfer.senderId());
+                receiverIds.add(transfer.request().getReceiverId());
+            } catch (TransactionException e) {
+                results[i] = failedItem(i, e.getMessage());
+            }
+        }
+
+        Map<Long, User> senders = senderIds.isEmpty() ? Map.of() : userRepository.findAllByIdForUpdate(senderIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        Map<Long, User> receivers = userRepository.findAllById(receiverIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        // Worked out once per sender and then decremented in memory, like a batch
+        Map<Long, BigDecimal> available = new HashMap<>();
+        List<Integer> applied = new ArrayList<>();
+        for (int i = 0; i < transfers.size(); i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            GroupedTransfer transfer = transfers.get(i);
+            User sender = senders.get(transfer.senderId());
+            BigDecimal amount = transfer.request().getAmount();
+            if (sender == null) {
+                results[i] = failedItem(i, "Sender not found");
+            } else if (!receivers.containsKey(transfer.request().getReceiverId())) {
+                results[i] = failedItem(i, "Receiver not found");
+            } else {
+                BigDecimal balance = available.computeIfAbsent(sender.getId(), id -> availableBalance(sender));
+                if (balance.compareTo(amount) < 0) {
+                    results[i] = failedItem(i, "Insufficient balance");
+                } else {
+                    available.put(sender.getId(), balance.subtract(amount));
+                    applied.add(i);
+                }
+            }
+        }
+        if (applied.isEmpty()) {
+            return Arrays.asList(results);
+        }
+
+        LocalDateTime createdAt = LocalDateTime.now();
+        List<Transaction> transactions = new ArrayList<>(applied.size());
+        Set<Long> touched = new HashSet<>();
+        for (int i : applied) {
+            GroupedTransfer transfer = transfers.get(i);
+            Transaction transaction = createTransaction(senders.get(transfer.senderId()),
+                    receivers.get(transfer.request().getReceiverId()), transfer.request());
+            transaction.setCreatedAt(createdAt);
+            transactions.add(transaction);
+            touched.add(transfer.senderId());
+            touched.add(transfer.request().getReceiverId());
+        }
+        transactionRepository.saveAll(transactions);
+
+        List<LedgerEntry> entries = new ArrayList<>(transactions.size() * 2);
+        for (Transaction transaction : transactions) {
+            entries.add(LedgerEntry.debit(transaction));
+            entries.add(LedgerEntry.credit(transaction));
+        }
+        ledgerEntryRepository.saveAll(entries);
+        balanceCache.invalidateAfterCommit(touched);
+
+        for (int n = 0; n < applied.size(); n++) {
+            int i = applied.get(n);
+            results[i] = new BatchItemResult(i, BatchItemResult.ItemStatus.COMPLETED,
+                    mapToResponse(transactions.get(n)), null);
+        }
+        return Arrays.asList(results);
     }
 
     @Transactional(readOnly = true)
     public List<TransactionResponse> getUserTransactions(Long userId) {
-        return transactionRepository.findBySenderIdOrReceiverIdOrderByCreatedAtDesc(userId, userId)
-                .stream()
-                .map(this::mapToResponse)
-                .toList();
+        return transactionRepository.findHistory(userId);
     }
 
+    /**
+     * Returns one page of history using keyset pagination on {@code (createdAt, id)}. Sent and
+     * received transactions are read separately, each from its own index, and merged, so a page
+     * costs the same no matter how deep the cursor is.
+     */
     @Transactional(readOnly = true)
-    public BalanceResponse getBalance(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new TransactionException("User not found"));
+    public TransactionPageResponse getTransactionPage(Long userId, String cursor, Integer size) {
+        int pageSize = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+        HistoryCursor position = HistoryCursor.decode(cursor);
+        Limit limit = Limit.of(pageSize + 1);
 
-        return new BalanceResponse(
-                user.getBalance(),
-                user.getEmail(),
-                user.getFullName()
-        );
+        List<TransactionResponse> sent = transactionRepository.findSentBefore(
+                userId, position.createdAt(), position.id(), limit);
+        List<TransactionResponse> received = transactionRepository.findReceivedBefore(
+                userId, position.createdAt(), position.id(), limit);
+        List<TransactionResponse> merged = mergeNewestFirst(sent, received, pageSize + 1);
+
+        boolean hasMore = merged.size() > pageSize;
+        List<TransactionResponse> page = hasMore ? merged.subList(0, pageSize) : merged;
+        String nextCursor = null;
+        if (hasMore) {
+            TransactionResponse last = page.get(page.size() - 1);
+            nextCursor = new HistoryCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        return new TransactionPageResponse(List.copyOf(page), nextCursor);
+    }
 
+    /**
+     * Writes the user's full history as each row arrives from a database cursor. Only one row
+     * is held at a time, so memory use does not depend on the size of the history.
+     */
+    @Transactional(readOnly = true)
+    public void exportTransactions(Long userId, ExportFormat format, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        try (Stream<TransactionResponse> rows = transactionRepository.streamHistory(userId)) {
+            if (format == ExportFormat.CSV) {
+                writeCsv(rows, writer);
+            } else {
+                writeNdjson(rows, writer);
+            }
+        }
+        writer.flush();
+    }
+
+    // Not read-only, so it is never routed to a read replica: a lagging replica's balance would
+    // be cached and served until the next transfer or the TTL, hiding transfers from everyone
+    @Transactional
+    public BalanceResponse getBalance(Long userId) {
+        return balanceCache.get(userId).orElseGet(() -> {
+            long readStamp = balanceCache.readStamp();
+            BalanceResponse response = userRepository.findBalance(userId)
+                    .orElseThrow(() -> new TransactionException("User not found"));
+            balanceCache.put(userId, response, readStamp);
+            return response;
+        });
     }
 
 
@@ -74,17 +452,120 @@ public class TransactionServiceImpl implements TransactionService {
                 .orElseThrow(() -> new TransactionException("Amount must be greater than zero"));
     }
 
-    private void validateTransferAmount(User sender, BigDecimal amount) {
-        if (sender.getBalance().compareTo(amount) < 0) {
-            throw new TransactionException("Insufficient balance");
+    private void writeNdjson(Stream<TransactionResponse> rows, Writer writer) throws IOException {
+        long written = 0;
+        try (SequenceWriter sequenceWriter = objectMapper.writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .withRootValueSeparator("\n")
+                .writeValues(writer)) {
+            for (TransactionResponse row : (Iterable<TransactionResponse>) rows::iterator) {
+                sequenceWriter.write(row);
+                if (++written % EXPORT_FLUSH_INTERVAL == 0) {
+                    sequenceWriter.flush();
+                }
+            }
+        }
+        if (written > 0) {
+            writer.write('\n');
+        }
+    }
+
+    private void writeCsv(Stream<TransactionResponse> rows, Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        long written = 0;
+        for (TransactionResponse row : (Iterable<TransactionResponse>) rows::iterator) {
+            writer.write(String.join(",",
+                    String.valueOf(row.getId()),
+                    String.valueOf(row.getSenderId()),
+                    csvField(row.getSenderName()),
+                    String.valueOf(row.getReceiverId()),
+                    csvField(row.getReceiverName()),
+                    row.getAmount().toPlainString(),
+                    csvField(row.getDescription()),
+                    row.getStatus(),
+                    row.getCreatedAt().toString()));
+            writer.write('\n');
+            if (++written % EXPORT_FLUSH_INTERVAL == 0) {
+                writer.flush();
+            }
+        }
+    }
+
+    private String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private List<TransactionResponse> mergeNewestFirst(List<TransactionResponse> left,
+                                                       List<TransactionResponse> right,
+                                                       int limit) {
+        List<TransactionResponse> merged = new ArrayList<>(Math.min(limit, left.size() + right.size()));
+        int l = 0;
+        int r = 0;
+        while (merged.size() < limit && (l < left.size() || r < right.size())) {
+            if (r >= right.size() || (l < left.size() && NEWEST_FIRST.compare(left.get(l), right.get(r)) <= 0)) {
+                merged.add(left.get(l++));
+            } else {
+                merged.add(right.get(r++));
+            }
+        }
+        return merged;
+    }
+
+    // Runs the operation in the caller's transaction, after the key has been claimed
+    private TransactionResponse withIdempotencyKey(Long senderId, TransferRequest request, String idempotencyKey,
+                                                   Supplier<TransactionResponse> operation) {
+        IdempotencyRecord record = idempotencyRecordRepository.saveAndFlush(
+                IdempotencyRecord.claim(senderId, idempotencyKey, TransferIdempotency.requestHash(request)));
+        TransactionResponse response = operation.get();
+        record.setResponse(writeJson(response));
+        return response;
+    }
+
+    private String writeJson(TransactionResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Transfer response could not be serialized", e);
         }
     }
 
-    private void updateBalances(User sender, User receiver, BigDecimal amount) {
-        sender.setBalance(sender.getBalance().subtract(amount));
-        receiver.setBalance(receiver.getBalance().add(amount));
+    private BatchItemResult failedItem(int index, String error) {
+        return new BatchItemResult(index, BatchItemResult.ItemStatus.FAILED, null, error);
+    }
 
-        userRepository.saveAll(List.of(sender, receiver));
+    private User readSender(Long senderId, boolean optimistic) {
+        Optional<User> sender = optimistic
+                ? userRepository.findById(senderId)
+                : userRepository.findByIdForUpdate(senderId);
+        return sender.orElseThrow(() -> new TransactionException("Sender not found"));
+    }
+
+    /**
+     * Bumps the version the optimistic read saw. Another debit or a compaction of this sender
+     * since the read fails the check, and the whole attempt is rolled back and retried.
+     */
+    private void checkSenderVersion(User sender) {
+        if (userRepository.incrementVersion(sender.getId(), sender.getVersion()) == 0) {
+            transferContention.recordConflict(sender.getId());
+            throw new ObjectOptimisticLockingFailureException(User.class, sender.getId());
+        }
+        transferContention.recordSuccess(sender.getId());
+    }
+
+    // Must be called with the sender locked or version-checked: otherwise a concurrent debit or
+    // compaction could go unnoticed
+    private BigDecimal availableBalance(User sender) {
+        return sender.getBalance().add(ledgerEntryRepository.sumUnposted(sender.getId()));
+    }
+
+    private void validateTransferAmount(BigDecimal available, BigDecimal amount) {
+        if (available.compareTo(amount) < 0) {
+            throw new TransactionException("Insufficient balance");
+        }
     }
 
     private Transaction createTransaction(User sender, User receiver, TransferRequest request) {
@@ -97,7 +578,8 @@ public class TransactionServiceImpl implements TransactionService {
         return transaction;
     }
 
-    private TransactionResponse mapToResponse(Transaction transaction) {
+    // Static and package-private so the mapping can be benchmarked on its own
+    static TransactionResponse mapToResponse(Transaction transaction) {
         return new TransactionResponse(
                 transaction.getId(),
                 transaction.getSender().getId(),
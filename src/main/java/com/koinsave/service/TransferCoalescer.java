@@ -0,0 +1,214 @@
+package com.koinsave.service;
+
+import com.koinsave.dto.request.TransferRequest;
+import com.koinsave.dto.response.BatchItemResult;
+import com.koinsave.dto.response.TransactionResponse;
+import com.koinsave.exception.ServiceUnavailableException;
+import com.koinsave.exception.TransactionException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Group commit for synchronous transfers. Callers hand their transfer to a committer thread and
+ * wait; the committer collects whatever else arrives within {@code window-micros} of the first
+ * transfer, up to {@code max-batch}, and applies the lot with
+ * {@link TransactionServiceImpl#transferGroup} so they share one commit. Each caller gets its own
+ * response or failure.
+ *
+ * <p>If the group transaction fails before committing, because a sender's lock timed out on
+ * every retry or the bulkhead turned it away, the committer applies the group's transfers one by
+ * one, so only the transfers that actually fail are reported as failed. Any other failure may
+ * have happened during or after the commit, so the group is not retried and its callers are
+ * told to check their history instead.
+ *
+ * <p>On shutdown, transfers still queued are failed without being applied.
+ *
+ * <p>Only used by the JPA engine; when disabled, transfers go straight to the transaction service.
+ */
+@Slf4j
+@Component
+public class TransferCoalescer {
+
+    private static final String SHUTTING_DOWN_MESSAGE = "Transfer service is shutting down";
+
+    private final TransactionService transactionService;
+    private final TransactionServiceImpl jpaTransactionService;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final long requestTimeoutMs;
+    private final BlockingQueue<Submission> queue = new LinkedBlockingQueue<>();
+    private final List<Thread> committers = new ArrayList<>();
+    private final DistributionSummary groupSize;
+    private final Timer groupCommit;
+    private volatile boolean running = true;
+
+    public TransferCoalescer(TransactionService transactionService,
+                             TransactionServiceImpl jpaTransactionService,
+                             MeterRegistry meterRegistry,
+                             @Value("${transaction.engine:jpa}") String engine,
+                             @Value("${transfer.group-commit.enabled:false}") boolean enabled,
+                             @Value("${transfer.group-commit.window-micros:1000}") long windowMicros,
+                             @Value("${transfer.group-commit.max-batch:32}") int maxBatch,
+                             @Value("${transfer.group-commit.committers:2}") int committerCount,
+                             @Value("${transfer.group-commit.request-timeout-ms:5000}") long requestTimeoutMs) {
+        this.transactionService = transactionService;
+        this.jpaTransactionService = jpaTransactionService;
+        this.enabled = enabled && "jpa".equals(engine);
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.maxBatch = Math.max(1, maxBatch);
+        this.requestTimeoutMs = requestTimeoutMs;
+        this.groupSize = DistributionSummary.builder("koinsave.transfer.group.size")
+                .description("Transfers applied per group commit")
+                .register(meterRegistry);
+        this.groupCommit = Timer.builder("koinsave.transfer.group.commit")
+                .description("Time to apply and commit one group of transfers")
+                .register(meterRegistry);
+        if (this.enabled) {
+            for (int i = 0; i < committerCount; i++) {
+                Thread committer = new Thread(this::commitLoop, "transfer-committer-" + i);
+                committer.setDaemon(true);
+                committer.start();
+                committers.add(committer);
+            }
+            log.info("Group commit enabled: window {}us, up to {} transfers, {} committers",
+                    windowMicros, this.maxBatch, committerCount);
+        }
+    }
+
+    public TransactionResponse transfer(Long senderId, TransferRequest request) {
+        if (!enabled) {
+            return transactionService.transfer(senderId, request);
+        }
+        // Rejected here rather than in the group, so the caller does not wait for an obvious failure
+        if (senderId.equals(request.getReceiverId())) {
+            throw new TransactionException("Cannot transfer to yourself");
+        }
+        if (request.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            throw new TransactionException("Amount must be greater than zero");
+        }
+        Submission submission = new Submission(new GroupedTransfer(senderId, request), new CompletableFuture<>());
+        queue.add(submission);
+        // Whoever removes it first answers it: this caller, or shutdown() draining the queue
+        if (!running && queue.remove(submission)) {
+            throw new TransactionException(SHUTTING_DOWN_MESSAGE);
+        }
+        return await(submission.result());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        for (Thread committer : committers) {
+            committer.interrupt();
+        }
+        for (Thread committer : committers) {
+            committer.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        List<Submission> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        fail(abandoned, new TransactionException(SHUTTING_DOWN_MESSAGE));
+    }
+
+    private void commitLoop() {
+        List<Submission> group = new ArrayList<>(maxBatch);
+        while (running) {
+            try {
+                group.add(queue.take());
+                long deadline = System.nanoTime() + windowNanos;
+                while (group.size() < maxBatch) {
+                    Submission next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+                commit(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(group, new TransactionException(SHUTTING_DOWN_MESSAGE));
+                return;
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void commit(List<Submission> group) {
+        List<GroupedTransfer> transfers = group.stream().map(Submission::transfer).toList();
+        List<BatchItemResult> results;
+        try {
+            results = groupCommit.record(() -> jpaTransactionService.transferGroup(transfers));
+        } catch (ConcurrencyFailureException | ServiceUnavailableException e) {
+            log.warn("Group of {} transfers failed, applying them one by one", group.size(), e);
+            commitIndividually(group);
+            return;
+        } catch (RuntimeException e) {
+            log.error("Group of {} transfers failed with an unknown outcome", group.size(), e);
+            fail(group, new TransactionException("Transfer outcome is unknown, check your history before retrying"));
+            return;
+        }
+        groupSize.record(group.size());
+
+        for (int i = 0; i < group.size(); i++) {
+            BatchItemResult result = results.get(i);
+            if (result.getStatus() == BatchItemResult.ItemStatus.COMPLETED) {
+                group.get(i).result().complete(result.getTransaction());
+            } else {
+                group.get(i).result().completeExceptionally(new TransactionException(result.getError()));
+            }
+        }
+    }
+
+    private void commitIndividually(List<Submission> group) {
+        for (Submission submission : group) {
+            try {
+                GroupedTransfer transfer = submission.transfer();
+                submission.result().complete(jpaTransactionService.transfer(transfer.senderId(), transfer.request()));
+            } catch (RuntimeException e) {
+                submission.result().completeExceptionally(e);
+            }
+        }
+    }
+
+    private void fail(List<Submission> group, RuntimeException failure) {
+        for (Submission submission : group) {
+            submission.result().completeExceptionally(failure);
+        }
+    }
+
+    private TransactionResponse await(CompletableFuture<TransactionResponse> result) {
+        try {
+            return result.get(requestTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Group commit failed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new TransactionException("Transfer is taking too long, check your history before retrying");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransactionException("Transfer interrupted");
+        }
+    }
+
+    private record Submission(GroupedTransfer transfer, CompletableFuture<TransactionResponse> result) {
+    }
+}
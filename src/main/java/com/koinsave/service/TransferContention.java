@@ -0,0 +1,115 @@
+package com.koinsave.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides per sender whether a transfer reads the sender optimistically or locks it.
+ *
+ * <p>In {@code optimistic} mode senders are read without a lock and their {@code User.version}
+ * is checked on write. A sender that conflicts {@code fallback-conflicts} times in a row is
+ * switched to pessimistic locking for {@code fallback-duration-ms}, after which it is given
+ * another optimistic try. In {@code pessimistic} mode every sender is locked.
+ */
+@Slf4j
+@Component
+public class TransferContention {
+
+    public enum Mode {
+        OPTIMISTIC, PESSIMISTIC
+    }
+
+    private final Mode mode;
+    private final int fallbackConflicts;
+    private final long fallbackNanos;
+    private final Cache<Long, AccountContention> accounts;
+    private final Counter optimisticAttempts;
+    private final Counter pessimisticAttempts;
+    private final Counter conflicts;
+    private final Counter fallbacks;
+
+    public TransferContention(MeterRegistry meterRegistry,
+                              @Value("${transfer.concurrency.mode:pessimistic}") String mode,
+                              @Value("${transfer.concurrency.fallback-conflicts:3}") int fallbackConflicts,
+                              @Value("${transfer.concurrency.fallback-duration-ms:30000}") long fallbackDurationMs,
+                              @Value("${transfer.concurrency.max-tracked-accounts:100000}") long maxTrackedAccounts) {
+        this.mode = Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        this.fallbackConflicts = fallbackConflicts;
+        this.fallbackNanos = TimeUnit.MILLISECONDS.toNanos(fallbackDurationMs);
+        this.accounts = CacheBuilder.newBuilder()
+                .maximumSize(maxTrackedAccounts)
+                .expireAfterAccess(fallbackDurationMs, TimeUnit.MILLISECONDS)
+                .build();
+        this.optimisticAttempts = attempts(meterRegistry, Mode.OPTIMISTIC);
+        this.pessimisticAttempts = attempts(meterRegistry, Mode.PESSIMISTIC);
+        this.conflicts = Counter.builder("koinsave.transfer.optimistic.conflicts")
+                .description("Optimistic transfers whose sender version changed before they could write")
+                .register(meterRegistry);
+        this.fallbacks = Counter.builder("koinsave.transfer.optimistic.fallbacks")
+                .description("Senders switched to pessimistic locking after repeated conflicts")
+                .register(meterRegistry);
+        log.info("Transfers run in {} mode", this.mode);
+    }
+
+    /**
+     * Picks the mode for one transfer attempt by this sender and counts it.
+     */
+    public boolean useOptimistic(Long senderId) {
+        boolean optimistic = mode == Mode.OPTIMISTIC && !inFallback(senderId);
+        (optimistic ? optimisticAttempts : pessimisticAttempts).increment();
+        return optimistic;
+    }
+
+    public void recordConflict(Long senderId) {
+        conflicts.increment();
+        AccountContention contention = contention(senderId);
+        if (contention.consecutiveConflicts.incrementAndGet() >= fallbackConflicts) {
+            contention.consecutiveConflicts.set(0);
+            contention.pessimisticUntil = System.nanoTime() + fallbackNanos;
+            fallbacks.increment();
+            log.info("Sender {} switched to pessimistic locking after {} conflicts", senderId, fallbackConflicts);
+        }
+    }
+
+    public void recordSuccess(Long senderId) {
+        AccountContention contention = accounts.getIfPresent(senderId);
+        if (contention != null) {
+            contention.consecutiveConflicts.set(0);
+        }
+    }
+
+    private boolean inFallback(Long senderId) {
+        AccountContention contention = accounts.getIfPresent(senderId);
+        return contention != null && contention.pessimisticUntil - System.nanoTime() > 0;
+    }
+
+    private AccountContention contention(Long senderId) {
+        try {
+            return accounts.get(senderId, AccountContention::new);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static Counter attempts(MeterRegistry meterRegistry, Mode mode) {
+        return Counter.builder("koinsave.transfer.attempts")
+                .description("Transfer attempts by concurrency mode")
+                .tag("mode", mode.name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry);
+    }
+
+    private static final class AccountContention {
+        private final AtomicInteger consecutiveConflicts = new AtomicInteger();
+        private volatile long pessimisticUntil = System.nanoTime();
+    }
+}
@@ -0,0 +1,154 @@
+package com.koinsave.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.koinsave.dto.request.TransferRequest;
+import com.koinsave.dto.response.TransactionResponse;
+import com.koinsave.exception.TransactionException;
+import com.koinsave.model.IdempotencyRecord;
+import com.koinsave.repository.IdempotencyRecordRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Answers transfers that carry an {@code Idempotency-Key}. A key already seen is replayed from
+ * a bounded in-memory cache or, failing that, from the {@code idempotency_keys} table; neither
+ * path reads or locks a {@code User} row. A new key is claimed by the transaction service in
+ * the same database transaction as the transfer, so the key and the money movement commit or
+ * roll back together.
+ */
+@Component
+public class TransferIdempotency {
+
+    public static final int MAX_KEY_LENGTH = 255;
+    public static final String KEY_REUSED_MESSAGE = "Idempotency-Key has already been used for a different transfer";
+
+    private final TransactionService transactionService;
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, StoredResponse> responses;
+    private final Counter cacheReplays;
+    private final Counter databaseReplays;
+
+    public TransferIdempotency(TransactionService transactionService,
+                               IdempotencyRecordRepository idempotencyRecordRepository,
+                               ObjectMapper objectMapper,
+                               MeterRegistry meterRegistry,
+                               @Value("${idempotency.cache.max-size:100000}") long maxSize,
+                               @Value("${idempotency.cache.ttl-minutes:60}") long ttlMinutes) {
+        this.transactionService = transactionService;
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.responses = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                .build();
+        this.cacheReplays = Counter.builder("koinsave.idempotency.replays")
+                .description("Transfers answered from a stored idempotent response")
+                .tag("source", "cache")
+                .register(meterRegistry);
+        this.databaseReplays = Counter.builder("koinsave.idempotency.replays")
+                .description("Transfers answered from a stored idempotent response")
+                .tag("source", "database")
+                .register(meterRegistry);
+    }
+
+    public TransactionResponse transfer(Long senderId, String idempotencyKey, TransferRequest request) {
+        return execute(senderId, idempotencyKey, request,
+                () -> transactionService.transfer(senderId, request, idempotencyKey));
+    }
+
+    /**
+     * Queued variant: a replay returns the transfer as it was accepted, and its current status
+     * is read from {@code GET /api/transactions/{id}}.
+     */
+    public TransactionResponse submit(Long senderId, String idempotencyKey, TransferRequest request) {
+        return execute(senderId, idempotencyKey, request,
+                () -> transactionService.submitTransfer(senderId, request, idempotencyKey));
+    }
+
+    private TransactionResponse execute(Long senderId, String idempotencyKey, TransferRequest request,
+                                        Supplier<TransactionResponse> operation) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new TransactionException("Idempotency-Key must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+        String requestHash = requestHash(request);
+        Optional<TransactionResponse> previous = findPrevious(senderId, idempotencyKey, requestHash);
+        if (previous.isPresent()) {
+            return previous.get();
+        }
+
+        try {
+            TransactionResponse response = operation.get();
+            responses.put(cacheKey(senderId, idempotencyKey), new StoredResponse(requestHash, response));
+            return response;
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent request with the same key claimed it first
+            return findPrevious(senderId, idempotencyKey, requestHash).orElseThrow(() ->
+                    new ConcurrencyFailureException("A transfer with this Idempotency-Key is still in progress", e));
+        }
+    }
+
+    /**
+     * Identifies a transfer by its content. Amounts are compared by value, so {@code 100} and
+     * {@code 100.00} are the same transfer.
+     */
+    public static String requestHash(TransferRequest request) {
+        String canonical = request.getReceiverId() + "\n"
+                + request.getAmount().stripTrailingZeros().toPlainString() + "\n"
+                + request.getDescription();
+        return Hashing.sha256().hashString(canonical, StandardCharsets.UTF_8).toString();
+    }
+
+    private Optional<TransactionResponse> findPrevious(Long senderId, String idempotencyKey, String requestHash) {
+        String cacheKey = cacheKey(senderId, idempotencyKey);
+        StoredResponse cached = responses.getIfPresent(cacheKey);
+        if (cached != null) {
+            cacheReplays.increment();
+            return Optional.of(replay(cached, requestHash));
+        }
+
+        Optional<IdempotencyRecord> record = idempotencyRecordRepository.findByUserIdAndIdempotencyKey(senderId, idempotencyKey);
+        if (record.isEmpty() || record.get().getResponse() == null) {
+            return Optional.empty();
+        }
+        StoredResponse stored = new StoredResponse(record.get().getRequestHash(), readResponse(record.get().getResponse()));
+        responses.put(cacheKey, stored);
+        databaseReplays.increment();
+        return Optional.of(replay(stored, requestHash));
+    }
+
+    private TransactionResponse replay(StoredResponse stored, String requestHash) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new TransactionException(KEY_REUSED_MESSAGE);
+        }
+        return stored.response();
+    }
+
+    private TransactionResponse readResponse(String json) {
+        try {
+            return objectMapper.readValue(json, TransactionResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored idempotent response is not readable", e);
+        }
+    }
+
+    private static String cacheKey(Long senderId, String idempotencyKey) {
+        return senderId + ":" + idempotencyKey;
+    }
+
+    private record StoredResponse(String requestHash, TransactionResponse response) {
+    }
+}
@@ -0,0 +1,424 @@
+package com.koinsave.service;
+
+import com.koinsave.exception.TransactionException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of transfers applied by the in-memory ledger, so that they can be
+ * acknowledged before {@link LedgerWriteBehind} has written them to the database. Records are
+ * {@link JournalRecord#SIZE}-byte slots in memory-mapped segment files named after their first
+ * sequence number; a full segment is forced to disk and followed by a new one.
+ *
+ * <p>{@code journal.fsync} decides when an acknowledged transfer is on disk:
+ * <ul>
+ *   <li>{@code every-write}: each append forces its own slot before returning;</li>
+ *   <li>{@code group}: a syncer thread forces whatever has been appended since its last pass,
+ *       and callers of {@link #awaitDurable} wait for the pass that covers them;</li>
+ *   <li>{@code interval}: the syncer forces every {@code journal.fsync-interval-ms} and nobody
+ *       waits. A process crash loses nothing, since the pages are already in the OS cache; a
+ *       power loss can lose the last interval.</li>
+ * </ul>
+ *
+ * <p>The checkpoint is the highest sequence up to which every record is in the database. It
+ * is stored in its own file, and segments that lie entirely below it are deleted.
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("'${transaction.engine:jpa}' == 'ledger' and ${journal.enabled:false}")
+public class TransferJournal {
+
+    public enum FsyncPolicy {
+        EVERY_WRITE, GROUP, INTERVAL
+    }
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+    private final long durableTimeoutMs;
+    private final NavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ByteBuffer scratch = ByteBuffer.allocate(JournalRecord.SIZE);
+    private final Object durableMonitor = new Object();
+    private final Object checkpointMonitor = new Object();
+    private final TreeSet<Long> persistedAhead = new TreeSet<>();
+    private final Thread syncer;
+
+    private Segment active;
+    private long nextSequence;
+    private volatile long durableSequence;
+    private long checkpoint;
+    private volatile boolean running = true;
+
+    public TransferJournal(@Value("${journal.dir:data/journal}") Path directory,
+                           @Value("${journal.segment-size-bytes:67108864}") long segmentSizeBytes,
+                           @Value("${journal.fsync:group}") String fsyncPolicy,
+                           @Value("${journal.fsync-interval-ms:10}") long fsyncIntervalMs,
+                           @Value("${journal.durable-timeout-ms:5000}") long durableTimeoutMs) throws IOException {
+        this.directory = directory;
+        this.recordsPerSegment = (int) Math.max(1, segmentSizeBytes / JournalRecord.SIZE);
+        this.fsyncPolicy = FsyncPolicy.valueOf(fsyncPolicy.trim().toUpperCase().replace('-', '_'));
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMs);
+        this.durableTimeoutMs = durableTimeoutMs;
+
+        Files.createDirectories(directory);
+        this.checkpoint = readCheckpoint();
+        recover();
+        truncate();
+
+        if (this.fsyncPolicy != FsyncPolicy.EVERY_WRITE) {
+            this.syncer = new Thread(this::syncLoop, "journal-syncer");
+            this.syncer.setDaemon(true);
+            this.syncer.start();
+        } else {
+            this.syncer = null;
+        }
+        log.info("Transfer journal in {} at sequence {}, checkpoint {}, fsync {}",
+                directory, nextSequence, checkpoint, this.fsyncPolicy);
+    }
+
+    /**
+     * Appends a posting and returns its sequence number. With {@code every-write} the record is
+     * on disk when this returns; otherwise call {@link #awaitDurable} before acknowledging it.
+     */
+    public long append(LedgerPosting posting) {
+        appendLock.lock();
+        try {
+            if (active == null || active.count == recordsPerSegment) {
+                rollover();
+            }
+            long sequence = nextSequence;
+            scratch.clear();
+            JournalRecord.of(sequence, posting).writeTo(scratch);
+            int slot = active.count;
+            active.buffer.put(slot * JournalRecord.SIZE, scratch, 0, JournalRecord.SIZE);
+            active.count++;
+            nextSequence++;
+
+            if (fsyncPolicy == FsyncPolicy.EVERY_WRITE) {
+                active.buffer.force(slot * JournalRecord.SIZE, JournalRecord.SIZE);
+                markDurable(sequence);
+            }
+            return sequence;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Returns once {@code sequence} is on disk. Only waits under the {@code group} policy.
+     */
+    public void awaitDurable(long sequence) {
+        if (fsyncPolicy != FsyncPolicy.GROUP || durableSequence >= sequence) {
+            return;
+        }
+        LockSupport.unpark(syncer);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durableTimeoutMs);
+        synchronized (durableMonitor) {
+            while (durableSequence < sequence) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new TransactionException("Journal is busy, please check your history before retrying");
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(durableMonitor, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new TransactionException("Journal write interrupted");
+                }
+            }
+        }
+    }
+
+    /**
+     * The highest sequence appended so far.
+     */
+    public long lastSequence() {
+        appendLock.lock();
+        try {
+            return nextSequence - 1;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    public long checkpoint() {
+        synchronized (checkpointMonitor) {
+            return checkpoint;
+        }
+    }
+
+    /**
+     * Records that these sequences are in the database. The checkpoint advances over every
+     * sequence without a gap below it, and segments below the checkpoint are deleted.
+     */
+    public void markPersisted(Collection<Long> sequences) {
+        synchronized (checkpointMonitor) {
+            persistedAhead.addAll(sequences);
+            long advanced = checkpoint;
+            while (persistedAhead.remove(advanced + 1)) {
+                advanced++;
+            }
+            persistedAhead.headSet(advanced, true).clear();
+            if (advanced == checkpoint) {
+                return;
+            }
+            checkpoint = advanced;
+            try {
+                writeCheckpoint(advanced);
+            } catch (UncheckedIOException e) {
+                // The records are in the database either way; replay skips those it finds there
+                log.warn("Could not write journal checkpoint {}, keeping its segments", advanced, e);
+                return;
+            }
+        }
+        truncate();
+    }
+
+    /**
+     * Passes every complete record from {@code fromSequence} onwards to {@code consumer}, in
+     * sequence order.
+     */
+    public void forEach(long fromSequence, Consumer<JournalRecord> consumer) {
+        for (Map.Entry<Long, Segment> entry : segments.entrySet()) {
+            Segment segment = entry.getValue();
+            Long nextFirst = segments.higherKey(entry.getKey());
+            if (nextFirst != null && nextFirst <= fromSequence) {
+                continue;
+            }
+            for (int slot = 0; slot < segment.count; slot++) {
+                JournalRecord record = JournalRecord.readFrom(segment.buffer, slot * JournalRecord.SIZE);
+                if (record != null && record.sequence() >= fromSequence) {
+                    consumer.accept(record);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException, IOException {
+        running = false;
+        if (syncer != null) {
+            LockSupport.unpark(syncer);
+            syncer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        appendLock.lock();
+        try {
+            for (Segment segment : segments.values()) {
+                segment.buffer.force();
+                segment.channel.close();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void syncLoop() {
+        while (running) {
+            long target;
+            Segment segment;
+            appendLock.lock();
+            try {
+                target = nextSequence - 1;
+                segment = active;
+            } finally {
+                appendLock.unlock();
+            }
+            // Records before the active segment were forced when it was rolled over
+            if (segment != null && target > durableSequence) {
+                segment.buffer.force();
+                markDurable(target);
+            }
+            if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+                LockSupport.parkNanos(fsyncIntervalNanos);
+            } else if (durableSequence >= lastSequence()) {
+                // Woken by the next caller of awaitDurable
+                LockSupport.parkNanos(fsyncIntervalNanos);
+            }
+        }
+    }
+
+    private void markDurable(long sequence) {
+        synchronized (durableMonitor) {
+            if (sequence > durableSequence) {
+                durableSequence = sequence;
+                durableMonitor.notifyAll();
+            }
+        }
+    }
+
+    // Called with the append lock held
+    private void rollover() {
+        try {
+            if (active != null) {
+                active.buffer.force();
+                markDurable(nextSequence - 1);
+            }
+            active = Segment.create(directory.resolve(segmentName(nextSequence)), recordsPerSegment);
+            segments.put(nextSequence, active);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create journal segment", e);
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long firstSequence = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+            segments.put(firstSequence, Segment.open(file));
+        }
+
+        nextSequence = checkpoint + 1;
+        for (Map.Entry<Long, Segment> entry : segments.entrySet()) {
+            Segment segment = entry.getValue();
+            // Count the complete records; anything after the first gap is a torn write and is overwritten
+            int count = 0;
+            while (count < segment.capacity) {
+                JournalRecord record = JournalRecord.readFrom(segment.buffer, count * JournalRecord.SIZE);
+                if (record == null || record.sequence() != entry.getKey() + count) {
+                    break;
+                }
+                count++;
+            }
+            segment.count = count;
+            nextSequence = Math.max(nextSequence, entry.getKey() + count);
+        }
+        if (!segments.isEmpty()) {
+            Map.Entry<Long, Segment> last = segments.lastEntry();
+            if (last.getValue().count == 0) {
+                // Created by a rollover just before the crash; the next append creates it again
+                segments.remove(last.getKey());
+                last.getValue().channel.close();
+                Files.delete(directory.resolve(segmentName(last.getKey())));
+            } else if (last.getValue().capacity == recordsPerSegment) {
+                active = last.getValue();
+            }
+        }
+        durableSequence = nextSequence - 1;
+    }
+
+    private void truncate() {
+        long persisted = checkpoint();
+        appendLock.lock();
+        try {
+            Map.Entry<Long, Segment> entry = segments.firstEntry();
+            while (entry != null && entry.getValue() != active) {
+                Long nextFirst = segments.higherKey(entry.getKey());
+                if (nextFirst == null || nextFirst - 1 > persisted) {
+                    break;
+                }
+                segments.remove(entry.getKey());
+                entry.getValue().channel.close();
+                Files.deleteIfExists(directory.resolve(segmentName(entry.getKey())));
+                log.debug("Deleted journal segment starting at {}", entry.getKey());
+                entry = segments.firstEntry();
+            }
+        } catch (IOException e) {
+            log.warn("Could not delete journal segments below checkpoint {}", persisted, e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (content.remaining() != Long.BYTES + Integer.BYTES) {
+            throw new IllegalStateException("Journal checkpoint file is corrupt: " + file);
+        }
+        long sequence = content.getLong();
+        if (checksum(sequence) != content.getInt()) {
+            throw new IllegalStateException("Journal checkpoint file is corrupt: " + file);
+        }
+        return sequence;
+    }
+
+    // Written to a temporary file and moved into place, so a crash leaves the old or the new value
+    private void writeCheckpoint(long sequence) {
+        ByteBuffer content = ByteBuffer.allocate(Long.BYTES + Integer.BYTES).putLong(sequence).putInt(checksum(sequence));
+        Path temporary = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(content.flip());
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write journal checkpoint", e);
+        }
+        try {
+            Files.move(temporary, directory.resolve(CHECKPOINT_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write journal checkpoint", e);
+        }
+    }
+
+    private static int checksum(long sequence) {
+        CRC32C crc = new CRC32C();
+        crc.update(ByteBuffer.allocate(Long.BYTES).putLong(sequence).flip());
+        return (int) crc.getValue();
+    }
+
+    private static String segmentName(long firstSequence) {
+        return String.format("%020d%s", firstSequence, SEGMENT_SUFFIX);
+    }
+
+    private static final class Segment {
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        private int count;
+
+        private Segment(FileChannel channel, MappedByteBuffer buffer) {
+            this.channel = channel;
+            this.buffer = buffer;
+            this.capacity = buffer.capacity() / JournalRecord.SIZE;
+        }
+
+        private static Segment create(Path file, int records) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) records * JournalRecord.SIZE));
+        }
+
+        private static Segment open(Path file) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+        }
+    }
+}
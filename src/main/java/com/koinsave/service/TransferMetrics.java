@@ -0,0 +1,40 @@
+package com.koinsave.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of each stage of a transfer, published as {@code koinsave.transfer.stage{stage=...}}.
+ * Stages are timed back to back: {@link #record} returns the end of the stage it recorded,
+ * which becomes the start of the next one.
+ */
+@Component
+public class TransferMetrics {
+
+    public enum Stage {
+        VALIDATION, SENDER_LOCK, RECEIVER_LOOKUP, BALANCE_CHECK, INSERT, MAPPING
+    }
+
+    private final Map<Stage, Timer> timers = new EnumMap<>(Stage.class);
+
+    public TransferMetrics(MeterRegistry meterRegistry) {
+        for (Stage stage : Stage.values()) {
+            timers.put(stage, Timer.builder("koinsave.transfer.stage")
+                    .description("Time spent in each stage of a transfer")
+                    .tag("stage", stage.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+    }
+
+    public long record(Stage stage, long startNanos) {
+        long now = System.nanoTime();
+        timers.get(stage).record(now - startNanos, TimeUnit.NANOSECONDS);
+        return now;
+    }
+}
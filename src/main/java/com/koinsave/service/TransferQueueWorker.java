@@ -0,0 +1,196 @@
+package com.koinsave.service;
+
+import com.koinsave.exception.TransactionException;
+import com.koinsave.model.Transaction;
+import com.koinsave.repository.TransactionRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains transfers queued by {@link TransactionServiceImpl#submitTransfer} as {@code PENDING}
+ * rows. A dispatcher thread reads the oldest pending transfers and hands each one to a worker
+ * chosen by sender id, so a sender's transfers are settled in the order they were accepted.
+ * The next batch is only read once the current one is done, so no transfer is dispatched twice.
+ *
+ * <p>A transfer that can never be settled, for example because its sender is gone, is marked
+ * {@code FAILED} with the reason. Any other failure leaves it pending for a later poll, up to
+ * {@code transfer.async.max-attempts} attempts, after which it is marked {@code FAILED} too.
+ * When a whole batch settles nothing the dispatcher backs off instead of reading the same
+ * batch straight away.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "transfer.async.enabled", havingValue = "true")
+public class TransferQueueWorker {
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionServiceImpl transactionService;
+    private final ExecutorService[] workers;
+    private final int batchSize;
+    private final long pollIntervalMs;
+    private final int maxAttempts;
+    // Failed attempts of transfers still pending, by transaction id
+    private final Map<Long, Integer> attempts = new ConcurrentHashMap<>();
+    private final AtomicLong depth = new AtomicLong();
+    private final Timer lag;
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+    private long depthCountedAt = System.nanoTime() - TimeUnit.SECONDS.toNanos(1);
+
+    public TransferQueueWorker(TransactionRepository transactionRepository,
+                               TransactionServiceImpl transactionService,
+                               MeterRegistry meterRegistry,
+                               @Value("${transfer.async.workers:4}") int workerCount,
+                               @Value("${transfer.async.batch-size:200}") int batchSize,
+                               @Value("${transfer.async.poll-interval-ms:50}") long pollIntervalMs,
+                               @Value("${transfer.async.max-attempts:5}") int maxAttempts) {
+        this.transactionRepository = transactionRepository;
+        this.transactionService = transactionService;
+        this.batchSize = batchSize;
+        this.pollIntervalMs = pollIntervalMs;
+        this.maxAttempts = maxAttempts;
+        this.workers = new ExecutorService[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            int index = i;
+            workers[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "transfer-worker-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        Gauge.builder("koinsave.transfer.queue.depth", depth, AtomicLong::get)
+                .description("Queued transfers waiting to be settled")
+                .register(meterRegistry);
+        this.lag = Timer.builder("koinsave.transfer.queue.lag")
+                .description("Time from accepting a queued transfer to settling it")
+                .register(meterRegistry);
+        this.dispatcher = new Thread(this::dispatchLoop, "transfer-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        dispatcher.interrupt();
+        dispatcher.join(TimeUnit.SECONDS.toMillis(30));
+        for (ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                List<Transaction> pending = transactionRepository.findByStatusOrderByIdAsc(
+                        Transaction.TransactionStatus.PENDING, Limit.of(batchSize));
+                updateDepth(pending.size());
+                if (pending.isEmpty()) {
+                    Thread.sleep(pollIntervalMs);
+                    continue;
+                }
+
+                List<Future<Boolean>> settled = new ArrayList<>(pending.size());
+                for (Transaction transaction : pending) {
+                    Long id = transaction.getId();
+                    LocalDateTime createdAt = transaction.getCreatedAt();
+                    settled.add(workerFor(transaction.getSender().getId()).submit(() -> settle(id, createdAt)));
+                }
+                boolean progressed = false;
+                for (Future<Boolean> future : settled) {
+                    progressed |= future.get();
+                }
+                if (!progressed) {
+                    backOff();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Failed to dispatch queued transfers", e);
+                backOff();
+            }
+        }
+    }
+
+    /**
+     * Returns true if the transfer left the queue, whether settled here or elsewhere, and false
+     * if it is still pending.
+     */
+    boolean settle(Long transactionId, LocalDateTime createdAt) {
+        try {
+            if (transactionService.processPending(transactionId)) {
+                lag.record(Duration.between(createdAt, LocalDateTime.now()));
+            }
+            attempts.remove(transactionId);
+            return true;
+        } catch (TransactionException e) {
+            log.warn("Queued transfer {} cannot be settled: {}", transactionId, e.getMessage());
+            return fail(transactionId, e.getMessage());
+        } catch (Exception e) {
+            int attempt = attempts.merge(transactionId, 1, Integer::sum);
+            if (attempt >= maxAttempts) {
+                log.error("Failed to settle queued transfer {} after {} attempts, giving up", transactionId, attempt, e);
+                return fail(transactionId, "Transfer could not be processed, please try again");
+            }
+            log.warn("Failed to settle queued transfer {} (attempt {} of {}), will retry",
+                    transactionId, attempt, maxAttempts, e);
+            return false;
+        }
+    }
+
+    private boolean fail(Long transactionId, String reason) {
+        try {
+            transactionService.failPending(transactionId, reason);
+            attempts.remove(transactionId);
+            return true;
+        } catch (Exception e) {
+            log.warn("Failed to mark queued transfer {} as failed, will retry", transactionId, e);
+            return false;
+        }
+    }
+
+    // A short batch is the whole queue; a full one means a backlog, counted at most once a second
+    private void updateDepth(int polled) {
+        if (polled < batchSize) {
+            depth.set(polled);
+            return;
+        }
+        long now = System.nanoTime();
+        if (now - depthCountedAt >= TimeUnit.SECONDS.toNanos(1)) {
+            depth.set(transactionRepository.countByStatus(Transaction.TransactionStatus.PENDING));
+            depthCountedAt = now;
+        }
+    }
+
+    private ExecutorService workerFor(Long senderId) {
+        return workers[Math.floorMod(senderId.hashCode(), workers.length)];
+    }
+
+    private void backOff() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
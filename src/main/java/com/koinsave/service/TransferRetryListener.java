@@ -0,0 +1,71 @@
+package com.koinsave.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts transfer attempts rolled back by lock timeouts, deadlocks, serialization failures or
+ * optimistic version conflicts, and transfers that gave up after exhausting their retries.
+ * Both counters are tagged {@code conflict=lock} or {@code conflict=version}.
+ */
+@Slf4j
+@Component("transferRetryListener")
+public class TransferRetryListener implements RetryListener {
+
+    private final Counter lockRetries;
+    private final Counter versionRetries;
+    private final Counter lockAborts;
+    private final Counter versionAborts;
+
+    public TransferRetryListener(MeterRegistry meterRegistry) {
+        this.lockRetries = retries(meterRegistry, "lock");
+        this.versionRetries = retries(meterRegistry, "version");
+        this.lockAborts = aborts(meterRegistry, "lock");
+        this.versionAborts = aborts(meterRegistry, "version");
+    }
+
+    @Override
+    public <T, E extends Throwable> void onError(RetryContext context,
+                                                 RetryCallback<T, E> callback,
+                                                 Throwable throwable) {
+        if (throwable instanceof ConcurrencyFailureException) {
+            (isVersionConflict(throwable) ? versionRetries : lockRetries).increment();
+            log.debug("Transfer attempt {} hit a conflict: {}", context.getRetryCount(), throwable.getMessage());
+        }
+    }
+
+    @Override
+    public <T, E extends Throwable> void close(RetryContext context,
+                                               RetryCallback<T, E> callback,
+                                               Throwable throwable) {
+        if (throwable instanceof ConcurrencyFailureException) {
+            (isVersionConflict(throwable) ? versionAborts : lockAborts).increment();
+            log.warn("Transfer aborted after {} attempts: {}", context.getRetryCount(), throwable.getMessage());
+        }
+    }
+
+    private static boolean isVersionConflict(Throwable throwable) {
+        return throwable instanceof OptimisticLockingFailureException;
+    }
+
+    private static Counter retries(MeterRegistry meterRegistry, String conflict) {
+        return Counter.builder("koinsave.transfer.retries")
+                .description("Transfer attempts rolled back by a conflict")
+                .tag("conflict", conflict)
+                .register(meterRegistry);
+    }
+
+    private static Counter aborts(MeterRegistry meterRegistry, String conflict) {
+        return Counter.builder("koinsave.transfer.aborts")
+                .description("Transfers aborted after exhausting conflict retries")
+                .tag("conflict", conflict)
+                .register(meterRegistry);
+    }
+}
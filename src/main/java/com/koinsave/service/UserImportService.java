@@ -0,0 +1,15 @@
+package com.koinsave.service;
+
+import com.koinsave.dto.request.ExportFormat;
+import com.koinsave.dto.response.ImportRowResult;
+import com.koinsave.dto.response.UserImportSummary;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface UserImportService {
+    UserImportSummary importUsers(InputStream input, ExportFormat format,
+                                  Consumer<List<ImportRowResult>> chunkListener) throws IOException;
+}
@@ -0,0 +1,288 @@
+package com.koinsave.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.koinsave.dto.request.ExportFormat;
+import com.koinsave.dto.request.RegisterRequest;
+import com.koinsave.dto.response.ImportRowResult;
+import com.koinsave.dto.response.ImportRowResult.RowStatus;
+import com.koinsave.dto.response.UserImportSummary;
+import com.koinsave.model.User;
+import com.koinsave.repository.UserRepository;
+import com.koinsave.util.PasswordUtil;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Creates users from a CSV or NDJSON stream in chunks. Each chunk is validated, deduplicated
+ * against the file and the database with one query, hashed on the import pool shared with other
+ * imports and inserted with JDBC batching in its own transaction, so a failing chunk never rolls
+ * back earlier ones.
+ *
+ * <p>CSV input needs a header row naming {@code email,password,fullName,initialBalance};
+ * NDJSON rows use the same fields as {@code /api/auth/register}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserImportServiceImpl implements UserImportService {
+
+    private final UserRepository userRepository;
+    private final PasswordUtil passwordUtil;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${user-import.chunk-size:500}")
+    private int chunkSize;
+
+    @Override
+    public UserImportSummary importUsers(InputStream input, ExportFormat format,
+                                         Consumer<List<ImportRowResult>> chunkListener) throws IOException {
+        TransactionTemplate chunkTransaction = new TransactionTemplate(transactionManager);
+        chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        UserImportSummary summary = new UserImportSummary();
+        Set<String> seenEmails = new HashSet<>();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            RowParser parser = format == ExportFormat.CSV ? new CsvRowParser(reader.readLine()) : this::parseJson;
+            List<ParsedRow> chunk = new ArrayList<>(chunkSize);
+            long lineNumber = format == ExportFormat.CSV ? 1 : 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                chunk.add(parser.parse(lineNumber, line));
+                if (chunk.size() == chunkSize) {
+                    chunkListener.accept(processChunk(chunk, seenEmails, chunkTransaction, summary));
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                chunkListener.accept(processChunk(chunk, seenEmails, chunkTransaction, summary));
+            }
+        }
+
+        log.info("User import finished: {} rows, {} created, {} duplicates, {} invalid, {} failed",
+                summary.getProcessed(), summary.getCreated(), summary.getDuplicates(),
+                summary.getInvalid(), summary.getFailed());
+        return summary;
+    }
+
+    private List<ImportRowResult> processChunk(List<ParsedRow> chunk, Set<String> seenEmails,
+                                               TransactionTemplate chunkTransaction, UserImportSummary summary) {
+        Map<Long, ImportRowResult> results = new HashMap<>();
+        List<ParsedRow> candidates = new ArrayList<>();
+
+        for (ParsedRow row : chunk) {
+            String error = row.error() != null ? row.error() : validate(row.request());
+            if (error != null) {
+                results.put(row.line(), new ImportRowResult(row.line(), row.email(), RowStatus.INVALID, null, error));
+            } else if (!seenEmails.add(row.email())) {
+                results.put(row.line(), new ImportRowResult(row.line(), row.email(), RowStatus.DUPLICATE, null,
+                        "Duplicate email in file"));
+            } else {
+                candidates.add(row);
+            }
+        }
+
+        if (!candidates.isEmpty()) {
+            Set<String> existing = new HashSet<>(userRepository.findExistingEmails(
+                    candidates.stream().map(ParsedRow::email).toList()));
+            List<ParsedRow> toCreate = new ArrayList<>();
+            for (ParsedRow row : candidates) {
+                if (existing.contains(row.email())) {
+                    results.put(row.line(), new ImportRowResult(row.line(), row.email(), RowStatus.DUPLICATE, null,
+                            "Email already registered"));
+                } else {
+                    toCreate.add(row);
+                }
+            }
+            createUsers(toCreate, chunkTransaction, results);
+        }
+
+        List<ImportRowResult> ordered = chunk.stream().map(row -> results.get(row.line())).toList();
+        for (ImportRowResult result : ordered) {
+            summary.setProcessed(summary.getProcessed() + 1);
+            switch (result.getStatus()) {
+                case CREATED -> summary.setCreated(summary.getCreated() + 1);
+                case DUPLICATE -> summary.setDuplicates(summary.getDuplicates() + 1);
+                case INVALID -> summary.setInvalid(summary.getInvalid() + 1);
+                case FAILED -> summary.setFailed(summary.getFailed() + 1);
+            }
+        }
+        log.info("User import progress: {} rows processed, {} created", summary.getProcessed(), summary.getCreated());
+        return ordered;
+    }
+
+    private void createUsers(List<ParsedRow> rows, TransactionTemplate chunkTransaction,
+                             Map<Long, ImportRowResult> results) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<Future<String>> hashes = new ArrayList<>(rows.size());
+        try {
+            for (ParsedRow row : rows) {
+                hashes.add(passwordUtil.encodeForImport(row.request().getPassword()));
+            }
+
+            List<User> users = new ArrayList<>(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                RegisterRequest request = rows.get(i).request();
+                User user = new User();
+                user.setEmail(rows.get(i).email());
+                user.setFullName(request.getFullName().trim());
+                user.setPassword(hashes.get(i).get());
+                user.setBalance(request.getInitialBalance() != null ? request.getInitialBalance() : BigDecimal.ZERO);
+                user.setActive(true);
+                users.add(user);
+            }
+
+            chunkTransaction.executeWithoutResult(status -> userRepository.saveAllAndFlush(users));
+
+            for (int i = 0; i < rows.size(); i++) {
+                ParsedRow row = rows.get(i);
+                results.put(row.line(), new ImportRowResult(row.line(), row.email(), RowStatus.CREATED,
+                        users.get(i).getId(), null));
+            }
+        } catch (DataAccessException | ExecutionException | RejectedExecutionException e) {
+            log.warn("User import chunk of {} rows failed: {}", rows.size(), e.getMessage());
+            failAll(rows, "Chunk failed: " + e.getMessage(), results);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failAll(rows, "Import interrupted", results);
+        } finally {
+            // Hashes still queued for a failed chunk would only keep the shared pool busy
+            hashes.forEach(hash -> hash.cancel(true));
+        }
+    }
+
+    private void failAll(List<ParsedRow> rows, String error, Map<Long, ImportRowResult> results) {
+        for (ParsedRow row : rows) {
+            results.put(row.line(), new ImportRowResult(row.line(), row.email(), RowStatus.FAILED, null, error));
+        }
+    }
+
+    private String validate(RegisterRequest request) {
+        Set<ConstraintViolation<RegisterRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private ParsedRow parseJson(long line, String json) {
+        try {
+            return ParsedRow.of(line, objectMapper.readValue(json, RegisterRequest.class));
+        } catch (JsonProcessingException e) {
+            return new ParsedRow(line, null, null, "Malformed JSON row");
+        }
+    }
+
+    private record ParsedRow(long line, String email, RegisterRequest request, String error) {
+        static ParsedRow of(long line, RegisterRequest request) {
+            String email = request.getEmail() == null ? null : request.getEmail().toLowerCase(Locale.ROOT).trim();
+            return new ParsedRow(line, email, request, null);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowParser {
+        ParsedRow parse(long line, String text);
+    }
+
+    private static final class CsvRowParser implements RowParser {
+        private final Map<String, Integer> columns = new HashMap<>();
+
+        private CsvRowParser(String header) {
+            if (header == null) {
+                return;
+            }
+            List<String> names = splitCsv(header);
+            for (int i = 0; i < names.size(); i++) {
+                columns.put(names.get(i).trim(), i);
+            }
+        }
+
+        @Override
+        public ParsedRow parse(long line, String text) {
+            List<String> fields = splitCsv(text);
+            try {
+                String balance = field(fields, "initialBalance");
+                RegisterRequest request = new RegisterRequest(
+                        field(fields, "email"),
+                        field(fields, "password"),
+                        field(fields, "fullName"),
+                        balance == null || balance.isBlank() ? BigDecimal.ZERO : new BigDecimal(balance.trim()));
+                return ParsedRow.of(line, request);
+            } catch (NumberFormatException e) {
+                return new ParsedRow(line, field(fields, "email"), null, "Invalid initial balance");
+            }
+        }
+
+        private String field(List<String> fields, String name) {
+            Integer index = columns.get(name);
+            return index == null || index >= fields.size() ? null : fields.get(index);
+        }
+
+        private static List<String> splitCsv(String text) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder current = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        current.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(current.toString());
+                    current.setLength(0);
+                } else {
+                    current.append(c);
+                }
+            }
+            fields.add(current.toString());
+            return fields;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.koinsave.util;
+
+import com.koinsave.exception.TransactionException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a user's history, ordered by {@code (createdAt, id)} descending. Clients only
+ * ever see the opaque token form.
+ */
+public record HistoryCursor(LocalDateTime createdAt, Long id) {
+
+    /** Sorts after every real row, so the first page uses the same keyset query as the rest. */
+    public static final HistoryCursor START = new HistoryCursor(LocalDateTime.of(9999, 12, 31, 0, 0), Long.MAX_VALUE);
+
+    public static HistoryCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return START;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf('|');
+            return new HistoryCursor(LocalDateTime.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | StringIndexOutOfBoundsException e) {
+            throw new TransactionException("Invalid cursor");
+        }
+    }
+
+    public String encode() {
+        String value = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
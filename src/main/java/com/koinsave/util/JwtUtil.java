@@ -1,9 +1,18 @@
 package com.koinsave.util;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -12,17 +21,49 @@ import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class JwtUtil {
 
+    private final MeterRegistry meterRegistry;
+
     @Value("${jwt.secret:defaultFallbackSecretKeyThatIsLongEnoughForTesting123!}")
     private String secret;
 
     @Value("${jwt.expiration:86400000}")
     private Long expiration;
 
+    @Value("${jwt.cache.enabled:true}")
+    private boolean cacheEnabled;
+
+    @Value("${jwt.cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    private SecretKey signingKey;
+    private JwtParser parser;
+    private Timer verifyTimer;
+
+    // Verified tokens by SHA-256 of the raw token, so repeat requests skip decoding and HMAC checks
+    private Cache<HashCode, VerifiedToken> verifiedTokens;
+
+    @PostConstruct
+    void init() {
+        signingKey = getSigningKey();
+        parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+        verifyTimer = Timer.builder("koinsave.jwt.verify")
+                .description("Time to parse and verify a JWT")
+                .register(meterRegistry);
+        verifiedTokens = CacheBuilder.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(expiration, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
     private SecretKey getSigningKey() {
         try {
             String effectiveSecret = secret;
@@ -52,7 +93,7 @@ public class JwtUtil {
                     .claim("userId", userId)
                     .issuedAt(now)
                     .expiration(expiryDate)
-                    .signWith(getSigningKey())
+                    .signWith(signingKey)
                     .compact();
 
             log.debug("JWT token generated successfully");
@@ -64,13 +105,51 @@ public class JwtUtil {
         }
     }
 
+    /**
+     * Resolves the user id of a token, verifying it at most once while it stays cached.
+     * Cached entries are dropped as soon as the token itself expires.
+     */
+    public Optional<Long> authenticate(String token) {
+        if (!cacheEnabled) {
+            return parseVerifiedClaims(token).map(claims -> claims.get("userId", Long.class));
+        }
+
+        HashCode key = Hashing.sha256().hashString(token, StandardCharsets.UTF_8);
+        VerifiedToken cached = verifiedTokens.getIfPresent(key);
+        if (cached != null) {
+            if (cached.expiresAt() > System.currentTimeMillis()) {
+                return Optional.of(cached.userId());
+            }
+            verifiedTokens.invalidate(key);
+            return Optional.empty();
+        }
+
+        Optional<Claims> claims = parseVerifiedClaims(token);
+        Optional<Long> userId = claims.map(c -> c.get("userId", Long.class));
+        if (userId.isPresent() && claims.get().getExpiration() != null) {
+            verifiedTokens.put(key, new VerifiedToken(userId.get(), claims.get().getExpiration().getTime()));
+        }
+        return userId;
+    }
+
+    /**
+     * Verifies the signature and expiry of a token and returns its claims in a single parse.
+     */
+    public Optional<Claims> parseVerifiedClaims(String token) {
+        long start = System.nanoTime();
+        try {
+            return Optional.of(parser.parseSignedClaims(token).getPayload());
+        } catch (JwtException | IllegalArgumentException e) {
+            log.warn("Token validation failed: {}", e.getMessage());
+            return Optional.empty();
+        } finally {
+            verifyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
     public Optional<String> extractEmail(String token) {
         try {
-            Claims claims = Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
+            Claims claims = parser.parseSignedClaims(token).getPayload();
             return Optional.ofNullable(claims.getSubject());
         } catch (JwtException | IllegalArgumentException e) {
             log.warn("Failed to extract email from token: {}", e.getMessage());
@@ -80,11 +159,7 @@ public class JwtUtil {
 
     public Optional<Long> extractUserId(String token) {
         try {
-            Claims claims = Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
+            Claims claims = parser.parseSignedClaims(token).getPayload();
             return Optional.ofNullable(claims.get("userId", Long.class));
         } catch (JwtException | IllegalArgumentException e) {
             log.warn("Failed to extract user ID from token: {}", e.getMessage());
@@ -94,14 +169,14 @@ public class JwtUtil {
 
     public boolean validateToken(String token) {
         try {
-            Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token);
+            parser.parseSignedClaims(token);
             return true;
         } catch (JwtException | IllegalArgumentException e) {
             log.warn("Token validation failed: {}", e.getMessage());
             return false;
         }
     }
+
+    private record VerifiedToken(Long userId, long expiresAt) {
+    }
 }
\ No newline at end of file
@@ -1,23 +1,154 @@
 package com.koinsave.util;
 
+import com.koinsave.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BCrypt runs on its own bounded pool so a burst of logins or registrations can only occupy
+ * {@code password.hash.threads} cores. Once {@code password.hash.queue-limit} requests are
+ * waiting, further ones are rejected straight away with 503.
+ *
+ * <p>Bulk imports hash on a second pool of {@code password.hash.import-threads}, shared by all
+ * running imports, so they neither starve logins nor add threads per upload. When its
+ * {@code password.hash.import-queue-limit} is reached the importing thread waits for room
+ * instead of being rejected.
+ */
 @Component
 public class PasswordUtil {
 
-    private final PasswordEncoder passwordEncoder;
+    private final BCryptPasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final ThreadPoolExecutor importExecutor;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Timer queueWaitTimer;
+    private final Timer importQueueWaitTimer;
+
+    public PasswordUtil(MeterRegistry meterRegistry,
+                        @Value("${password.bcrypt.cost:10}") int cost,
+                        @Value("${password.hash.threads:2}") int threads,
+                        @Value("${password.hash.queue-limit:100}") int queueLimit,
+                        @Value("${password.hash.import-threads:2}") int importThreads,
+                        @Value("${password.hash.import-queue-limit:1000}") int importQueueLimit) {
+        this.passwordEncoder = new BCryptPasswordEncoder(cost);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueLimit), daemonThreads("password-hash-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.importExecutor = new ThreadPoolExecutor(importThreads, importThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(importQueueLimit), daemonThreads("password-import-hash-"),
+                PasswordUtil::waitForRoom);
 
-    public PasswordUtil() {
-        this.passwordEncoder = new BCryptPasswordEncoder();
+        this.encodeTimer = Timer.builder("koinsave.password.hash")
+                .description("Time spent in BCrypt")
+                .tag("operation", "encode")
+                .register(meterRegistry);
+        this.matchesTimer = Timer.builder("koinsave.password.hash")
+                .description("Time spent in BCrypt")
+                .tag("operation", "matches")
+                .register(meterRegistry);
+        this.queueWaitTimer = Timer.builder("koinsave.password.queue.wait")
+                .description("Time a hashing request waited for a hashing thread")
+                .register(meterRegistry);
+        Gauge.builder("koinsave.password.queue.depth", executor, e -> e.getQueue().size())
+                .description("Hashing requests waiting for a hashing thread")
+                .register(meterRegistry);
+        this.importQueueWaitTimer = Timer.builder("koinsave.password.import.queue.wait")
+                .description("Time an imported password waited for an import hashing thread")
+                .register(meterRegistry);
+        Gauge.builder("koinsave.password.import.queue.depth", importExecutor, e -> e.getQueue().size())
+                .description("Imported passwords waiting for an import hashing thread")
+                .register(meterRegistry);
     }
 
     public String encode(String rawPassword) {
-        return passwordEncoder.encode(rawPassword);
+        return submit(encodeTimer, () -> passwordEncoder.encode(rawPassword));
     }
 
     public boolean matches(String rawPassword, String encodedPassword) {
-        return passwordEncoder.matches(rawPassword, encodedPassword);
+        return submit(matchesTimer, () -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Queues the hash on the import pool, blocking while that pool's queue is full.
+     */
+    public Future<String> encodeForImport(String rawPassword) {
+        long submitted = System.nanoTime();
+        return importExecutor.submit(() -> {
+            importQueueWaitTimer.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+            return encodeTimer.recordCallable(() -> passwordEncoder.encode(rawPassword));
+        });
+    }
+
+    /**
+     * True if the hash was produced with a lower cost than the one currently configured.
+     */
+    public boolean needsRehash(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        importExecutor.shutdownNow();
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static void waitForRoom(Runnable task, ThreadPoolExecutor pool) {
+        if (pool.isShutdown()) {
+            throw new RejectedExecutionException("Password hashing is shutting down");
+        }
+        try {
+            pool.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting to hash a password", e);
+        }
+    }
+
+    private <T> T submit(Timer hashTimer, Callable<T> hash) {
+        long submitted = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                queueWaitTimer.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+                return hashTimer.recordCallable(hash);
+            });
+        } catch (RejectedExecutionException e) {
+            throw new ServiceUnavailableException("Too many authentication requests, please retry shortly");
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
     }
 }
@@ -0,0 +1,60 @@
+package com.koinsave.util;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generic cell rate algorithm (GCRA) limiter. Each client holds a single theoretical arrival
+ * time that is advanced with compare-and-set, so admission never blocks and there is no window
+ * boundary where a client can burst twice. Clients idle for longer than the idle timeout are
+ * evicted.
+ */
+public class RateLimiter {
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final LoadingCache<String, Bucket> buckets;
+
+    public RateLimiter(int requestsPerMinute, int burst, Duration idleTimeout, long maxClients) {
+        this.emissionIntervalNanos = TimeUnit.MINUTES.toNanos(1) / requestsPerMinute;
+        this.burstToleranceNanos = emissionIntervalNanos * (Math.max(1, burst) - 1);
+        this.buckets = CacheBuilder.newBuilder()
+                .expireAfterAccess(idleTimeout)
+                .maximumSize(maxClients)
+                .build(CacheLoader.from(() -> new Bucket(System.nanoTime())));
+    }
+
+    /**
+     * @return 0 if the request is admitted, otherwise the nanoseconds until it would be
+     */
+    public long tryAcquire(String clientId) {
+        return buckets.getUnchecked(clientId).tryAcquire(System.nanoTime());
+    }
+
+    private final class Bucket {
+        private final AtomicLong theoreticalArrival;
+
+        private Bucket(long now) {
+            this.theoreticalArrival = new AtomicLong(now);
+        }
+
+        private long tryAcquire(long now) {
+            while (true) {
+                long current = theoreticalArrival.get();
+                long earliest = Math.max(current, now);
+                long wait = earliest - burstToleranceNanos - now;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (theoreticalArrival.compareAndSet(current, earliest + emissionIntervalNanos)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+-- Moves users and transactions from IDENTITY ids to the pooled sequences the entities now use
+-- (allocationSize = 50, so every sequence value reserves a block of 50 ids).
+--
+-- Run once against a persistent database (DATABASE_URL) before starting this version. The
+-- default in-memory database needs nothing. Re-running is safe.
+--
+-- Each sequence restarts one full block above the highest existing id, so the first block handed
+-- out never overlaps rows created before the migration. The old IDENTITY defaults are left in
+-- place; Hibernate now always supplies the id, so they are never used.
+
+CREATE SEQUENCE IF NOT EXISTS users_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE users_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 51 FROM users) INCREMENT BY 50;
+
+CREATE SEQUENCE IF NOT EXISTS transactions_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE transactions_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 51 FROM transactions) INCREMENT BY 50;
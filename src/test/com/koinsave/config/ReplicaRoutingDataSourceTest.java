@@ -0,0 +1,131 @@
+package com.koinsave.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two separate in-memory H2 databases stand in for the primary and the replica; each holds a
+ * row naming itself, so every read shows where it was routed.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private ReadYourWrites readYourWrites;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @BeforeEach
+    void setUp() {
+        DataSource primary = database("routing-primary", "primary");
+        DataSource replica = database("routing-replica", "replica");
+        readYourWrites = new ReadYourWrites(true, 60_000, 1000);
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replica, readYourWrites,
+                new SimpleMeterRegistry());
+        routing.afterPropertiesSet();
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void readOnlyTransaction_OfAuthenticatedRequest_ShouldUseReplica() {
+        authenticate(1L);
+
+        assertEquals("replica", readOnly.execute(status -> whereAmI()));
+    }
+
+    @Test
+    void readWriteTransaction_ShouldUsePrimary() {
+        authenticate(1L);
+
+        assertEquals("primary", readWrite.execute(status -> whereAmI()));
+    }
+
+    @Test
+    void readOnlyTransaction_OutsideRequest_ShouldUsePrimary() {
+        assertEquals("primary", readOnly.execute(status -> whereAmI()));
+    }
+
+    @Test
+    void readOnlyTransaction_OnThreadWithoutRequestAttributes_ShouldUsePrimary() throws Exception {
+        authenticate(1L);
+
+        // Like a streamed export: the request's attributes stay on the request thread
+        String route = CompletableFuture.supplyAsync(() -> readOnly.execute(status -> whereAmI())).get();
+
+        assertEquals("primary", route);
+    }
+
+    @Test
+    void readOnlyTransaction_ActingForUserOnAnotherThread_ShouldUseReplica() throws Exception {
+        String route = CompletableFuture.supplyAsync(() -> {
+            try (ReplicaRoutingDataSource.Scope routing = ReplicaRoutingDataSource.actingFor(1L)) {
+                return readOnly.execute(status -> whereAmI());
+            }
+        }).get();
+
+        assertEquals("replica", route);
+        assertEquals("primary", readOnly.execute(status -> whereAmI()));
+    }
+
+    @Test
+    void readOnlyTransaction_AfterUserTransferred_ShouldUsePrimaryForThatUserOnly() {
+        readYourWrites.recordWrite(1L);
+
+        authenticate(1L);
+        assertEquals("primary", readOnly.execute(status -> whereAmI()));
+        authenticate(2L);
+        assertEquals("replica", readOnly.execute(status -> whereAmI()));
+    }
+
+    @Test
+    void readYourWrites_WhenWindowIsZero_ShouldNotPinUsers() {
+        ReadYourWrites disabled = new ReadYourWrites(true, 0, 1000);
+        disabled.recordWrite(1L);
+
+        assertFalse(disabled.wroteRecently(1L));
+    }
+
+    private String whereAmI() {
+        return jdbcTemplate.queryForObject("SELECT name FROM database_role", String.class);
+    }
+
+    private static void authenticate(Long userId) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute("userId", userId);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    private static DataSource database(String name, String role) {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE IF NOT EXISTS database_role (name VARCHAR(16))");
+        jdbc.update("DELETE FROM database_role");
+        jdbc.update("INSERT INTO database_role (name) VALUES (?)", role);
+        return dataSource;
+    }
+}
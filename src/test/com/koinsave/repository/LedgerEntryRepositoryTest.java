@@ -0,0 +1,85 @@
+package com.koinsave.repository;
+
+import com.koinsave.dto.response.BalanceResponse;
+import com.koinsave.model.LedgerEntry;
+import com.koinsave.model.User;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class LedgerEntryRepositoryTest {
+
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void findBalance_ShouldAddOnlyUnpostedEntries() {
+        User user = persistUser("balance@example.com", 100);
+        persistEntry(user.getId(), LedgerEntry.EntryType.CREDIT, "50.00", false);
+        persistEntry(user.getId(), LedgerEntry.EntryType.DEBIT, "-20.00", false);
+        persistEntry(user.getId(), LedgerEntry.EntryType.CREDIT, "999.00", true);
+        entityManager.flush();
+
+        BalanceResponse balance = userRepository.findBalance(user.getId()).orElseThrow();
+
+        assertEquals(0, new BigDecimal("130.00").compareTo(balance.getBalance()));
+        assertEquals(0, new BigDecimal("30.00").compareTo(ledgerEntryRepository.sumUnposted(user.getId())));
+    }
+
+    @Test
+    void findBalance_WithoutEntries_ShouldReturnStoredBalance() {
+        User user = persistUser("empty@example.com", 75);
+        entityManager.flush();
+
+        assertEquals(0, new BigDecimal("75.00").compareTo(userRepository.findBalance(user.getId()).orElseThrow().getBalance()));
+    }
+
+    @Test
+    void markPosted_ShouldSkipEntriesAlreadyPosted() {
+        User user = persistUser("compaction@example.com", 0);
+        LedgerEntry unposted = persistEntry(user.getId(), LedgerEntry.EntryType.CREDIT, "10.00", false);
+        LedgerEntry posted = persistEntry(user.getId(), LedgerEntry.EntryType.CREDIT, "10.00", true);
+        entityManager.flush();
+
+        List<LedgerEntry> pending = ledgerEntryRepository.findByPostedFalseOrderByIdAsc(Limit.of(10));
+        int marked = ledgerEntryRepository.markPosted(List.of(unposted.getId(), posted.getId()));
+
+        assertEquals(List.of(unposted.getId()), pending.stream().map(LedgerEntry::getId).toList());
+        assertEquals(1, marked);
+    }
+
+    private User persistUser(String email, long balance) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("encodedPassword");
+        user.setFullName("Ledger User");
+        user.setBalance(BigDecimal.valueOf(balance));
+        entityManager.persist(user);
+        return user;
+    }
+
+    private LedgerEntry persistEntry(Long accountId, LedgerEntry.EntryType type, String amount, boolean posted) {
+        LedgerEntry entry = new LedgerEntry();
+        entry.setTransactionId(1L);
+        entry.setAccountId(accountId);
+        entry.setType(type);
+        entry.setAmount(new BigDecimal(amount));
+        entry.setPosted(posted);
+        entityManager.persist(entry);
+        return entry;
+    }
+}
@@ -0,0 +1,158 @@
+package com.koinsave.repository;
+
+import com.koinsave.dto.response.TransactionResponse;
+import com.koinsave.model.Transaction;
+import com.koinsave.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class TransactionRepositoryTest {
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void historyQueries_ShouldUseConstantStatementCountAsHistoryGrows() {
+        User small = seedHistory("small", 5);
+        User large = seedHistory("large", 50);
+
+        long smallStatements = countStatements(small.getId(), 10);
+        long largeStatements = countStatements(large.getId(), 100);
+
+        assertEquals(2, smallStatements);
+        assertEquals(smallStatements, largeStatements);
+    }
+
+    @Test
+    void historyQueries_ShouldNotManageEntities() {
+        User user = seedHistory("projection", 20);
+
+        List<TransactionResponse> history = transactionRepository.findHistory(user.getId());
+
+        assertEquals(20, history.size());
+        assertEquals("projection sender", history.get(0).getSenderName());
+        assertEquals("projection receiver", history.get(0).getReceiverName());
+        assertEquals("COMPLETED", history.get(0).getStatus());
+        assertEquals(0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    void saveAll_ShouldBatchInsertsInsteadOfOneStatementPerRow() {
+        User sender = persistUser("batch sender");
+        User receiver = persistUser("batch receiver");
+        entityManager.flush();
+        statistics.clear();
+
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setSender(sender);
+            transaction.setReceiver(receiver);
+            transaction.setAmount(BigDecimal.ONE);
+            transaction.setDescription("Transfer " + i);
+            transactions.add(transaction);
+        }
+        transactionRepository.saveAll(transactions);
+        entityManager.flush();
+
+        // A handful of sequence calls plus one statement per 50-row batch
+        assertTrue(statistics.getPrepareStatementCount() <= 6,
+                "prepared statements: " + statistics.getPrepareStatementCount());
+        assertEquals(100, transactions.stream().map(Transaction::getId).distinct().count());
+    }
+
+    @Test
+    void settlePending_ShouldOnlySettleTransfersThatAreStillPending() {
+        User sender = persistUser("queue sender");
+        User receiver = persistUser("queue receiver");
+        Transaction transaction = new Transaction();
+        transaction.setSender(sender);
+        transaction.setReceiver(receiver);
+        transaction.setAmount(BigDecimal.TEN);
+        transaction.setDescription("Queued transfer");
+        transaction.setStatus(Transaction.TransactionStatus.PENDING);
+        entityManager.persist(transaction);
+        entityManager.flush();
+
+        assertEquals(1, transactionRepository.findByStatusOrderByIdAsc(
+                Transaction.TransactionStatus.PENDING, Limit.of(10)).size());
+        assertEquals(1, transactionRepository.settlePending(transaction.getId(),
+                Transaction.TransactionStatus.COMPLETED, null, LocalDateTime.now()));
+        assertEquals(0, transactionRepository.settlePending(transaction.getId(),
+                Transaction.TransactionStatus.FAILED, "Insufficient balance", LocalDateTime.now()));
+
+        entityManager.clear();
+        Transaction settled = transactionRepository.findById(transaction.getId()).orElseThrow();
+        assertEquals(Transaction.TransactionStatus.COMPLETED, settled.getStatus());
+        assertNotNull(settled.getProcessedAt());
+        assertEquals(0, transactionRepository.countByStatus(Transaction.TransactionStatus.PENDING));
+    }
+
+    private long countStatements(Long userId, int limit) {
+        statistics.clear();
+        List<TransactionResponse> sent = transactionRepository.findSentBefore(
+                userId, LocalDateTime.now().plusDays(1), Long.MAX_VALUE, Limit.of(limit));
+        List<TransactionResponse> received = transactionRepository.findReceivedBefore(
+                userId, LocalDateTime.now().plusDays(1), Long.MAX_VALUE, Limit.of(limit));
+        assertFalse(sent.isEmpty());
+        assertFalse(received.isEmpty());
+        return statistics.getPrepareStatementCount();
+    }
+
+    // Half of the rows are sent by the returned user, half are received by it
+    private User seedHistory(String prefix, int size) {
+        User sender = persistUser(prefix + " sender");
+        User receiver = persistUser(prefix + " receiver");
+        for (int i = 0; i < size; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setSender(i % 2 == 0 ? sender : receiver);
+            transaction.setReceiver(i % 2 == 0 ? receiver : sender);
+            transaction.setAmount(BigDecimal.ONE);
+            transaction.setDescription("Transfer " + i);
+            transaction.setCreatedAt(LocalDateTime.now().minusMinutes(i));
+            entityManager.persist(transaction);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return sender;
+    }
+
+    private User persistUser(String fullName) {
+        User user = new User();
+        user.setEmail(fullName.replace(' ', '.') + "@example.com");
+        user.setPassword("encodedPassword");
+        user.setFullName(fullName);
+        user.setBalance(BigDecimal.valueOf(1000));
+        entityManager.persist(user);
+        return user;
+    }
+}
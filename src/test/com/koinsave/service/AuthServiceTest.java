@@ -3,6 +3,7 @@ package com.koinsave.service;
 import com.koinsave.dto.request.LoginRequest;
 import com.koinsave.dto.request.RegisterRequest;
 import com.koinsave.dto.response.AuthResponse;
+import com.koinsave.dto.response.BalanceResponse;
 import com.koinsave.exception.AuthException;
 import com.koinsave.model.User;
 import com.koinsave.repository.UserRepository;
@@ -14,6 +15,8 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
 import java.util.Optional;
@@ -35,6 +38,9 @@ class AuthServiceTest {
     @Mock
     private JwtUtil jwtUtil;
 
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private AuthServiceImpl authService;
 
@@ -75,7 +81,7 @@ class AuthServiceTest {
         assertEquals(BigDecimal.valueOf(1000), response.getBalance());
         assertEquals(1L, response.getUserId());
 
-        verify(userRepository).existsByEmail(validRequest.getEmail());
+        verify(userRepository, times(2)).existsByEmail(validRequest.getEmail());
         verify(passwordUtil).encode(validRequest.getPassword());
         verify(userRepository).save(any(User.class));
         verify(jwtUtil).generateToken(testUser.getEmail(), testUser.getId());
@@ -96,6 +102,19 @@ class AuthServiceTest {
         verify(jwtUtil, never()).generateToken(anyString(), anyLong());
     }
 
+    @Test
+    void register_WhenEmailIsTakenWhileHashing_ShouldThrowAuthException() {
+        when(userRepository.existsByEmail(validRequest.getEmail())).thenReturn(false, true);
+        when(passwordUtil.encode(validRequest.getPassword())).thenReturn("encodedPassword");
+
+        AuthException exception = assertThrows(AuthException.class,
+                () -> authService.register(validRequest));
+
+        assertEquals("Email already registered", exception.getMessage());
+        verify(userRepository, never()).save(any(User.class));
+        verify(jwtUtil, never()).generateToken(anyString(), anyLong());
+    }
+
     @Test
     void login_WithValidCredentials_ShouldReturnAuthResponse() {
         LoginRequest loginRequest = new LoginRequest("test@example.com", "password123");
@@ -116,6 +135,21 @@ class AuthServiceTest {
         verify(jwtUtil).generateToken(testUser.getEmail(), testUser.getId());
     }
 
+    @Test
+    void login_WithUnpostedLedgerEntries_ShouldReturnSpendableBalance() {
+        LoginRequest loginRequest = new LoginRequest("test@example.com", "password123");
+
+        when(userRepository.findByEmail(loginRequest.getEmail())).thenReturn(Optional.of(testUser));
+        when(passwordUtil.matches(loginRequest.getPassword(), testUser.getPassword())).thenReturn(true);
+        when(jwtUtil.generateToken(testUser.getEmail(), testUser.getId())).thenReturn("test-jwt-token");
+        when(userRepository.findBalance(1L)).thenReturn(Optional.of(
+                new BalanceResponse(BigDecimal.valueOf(1250), testUser.getEmail(), testUser.getFullName())));
+
+        AuthResponse response = authService.login(loginRequest);
+
+        assertEquals(BigDecimal.valueOf(1250), response.getBalance());
+    }
+
     @Test
     void login_WithInvalidEmail_ShouldThrowAuthException() {
         LoginRequest loginRequest = new com.koinsave.dto.request.LoginRequest("wrong@example.com", "password123");
@@ -166,4 +200,40 @@ class AuthServiceTest {
         verify(passwordUtil).matches(loginRequest.getPassword(), testUser.getPassword());
         verify(jwtUtil, never()).generateToken(anyString(), anyLong());
     }
-}
\ No newline at end of file
+
+    @Test
+    void login_WithOutdatedHashCost_ShouldRehashPassword() {
+        LoginRequest loginRequest = new LoginRequest("test@example.com", "password123");
+
+        when(userRepository.findByEmail(loginRequest.getEmail())).thenReturn(Optional.of(testUser));
+        when(passwordUtil.matches(loginRequest.getPassword(), "encodedPassword")).thenReturn(true);
+        when(passwordUtil.needsRehash("encodedPassword")).thenReturn(true);
+        when(passwordUtil.encode(loginRequest.getPassword())).thenReturn("rehashedPassword");
+        when(jwtUtil.generateToken(testUser.getEmail(), testUser.getId())).thenReturn("test-jwt-token");
+
+        AuthResponse response = authService.login(loginRequest);
+
+        assertEquals("test-jwt-token", response.getToken());
+        assertEquals("rehashedPassword", testUser.getPassword());
+        verify(userRepository).updatePassword(1L, "rehashedPassword");
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void login_WhenStoringRehashFails_ShouldStillSucceed() {
+        LoginRequest loginRequest = new LoginRequest("test@example.com", "password123");
+
+        when(userRepository.findByEmail(loginRequest.getEmail())).thenReturn(Optional.of(testUser));
+        when(passwordUtil.matches(loginRequest.getPassword(), "encodedPassword")).thenReturn(true);
+        when(passwordUtil.needsRehash("encodedPassword")).thenReturn(true);
+        when(passwordUtil.encode(loginRequest.getPassword())).thenReturn("rehashedPassword");
+        when(userRepository.updatePassword(1L, "rehashedPassword"))
+                .thenThrow(new QueryTimeoutException("Lock wait timeout"));
+        when(jwtUtil.generateToken(testUser.getEmail(), testUser.getId())).thenReturn("test-jwt-token");
+
+        AuthResponse response = authService.login(loginRequest);
+
+        assertEquals("test-jwt-token", response.getToken());
+        assertEquals("encodedPassword", testUser.getPassword());
+    }
+}
@@ -0,0 +1,86 @@
+package com.koinsave.service;
+
+import com.koinsave.dto.response.BalanceResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BalanceCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private BalanceCache balanceCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        balanceCache = new BalanceCache(meterRegistry, true, 100, 60);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void put_WithOlderRead_ShouldKeepNewerBalance() {
+        balanceCache.put(1L, balance(300), 200);
+        balanceCache.put(1L, balance(500), 100);
+
+        assertEquals(BigDecimal.valueOf(300), balanceCache.get(1L).map(BalanceResponse::getBalance).orElseThrow());
+    }
+
+    @Test
+    void put_WithReadStartedBeforeInvalidation_ShouldBeRejected() {
+        long readStamp = balanceCache.readStamp();
+        balanceCache.invalidateAfterCommit(List.of(1L));
+        balanceCache.put(1L, balance(500), readStamp);
+
+        assertTrue(balanceCache.get(1L).isEmpty());
+    }
+
+    @Test
+    void invalidateAfterCommit_ShouldWaitForCommit() {
+        balanceCache.put(1L, balance(1000), balanceCache.readStamp());
+
+        TransactionSynchronizationManager.initSynchronization();
+        balanceCache.invalidateAfterCommit(List.of(1L));
+
+        assertTrue(balanceCache.get(1L).isPresent());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        assertTrue(balanceCache.get(1L).isEmpty());
+    }
+
+    @Test
+    void get_ShouldCountHitsAndMisses() {
+        balanceCache.get(1L);
+        balanceCache.put(1L, balance(100), balanceCache.readStamp());
+        balanceCache.get(1L);
+
+        assertEquals(1, meterRegistry.get("koinsave.balance.cache").tag("result", "hit").counter().count());
+        assertEquals(1, meterRegistry.get("koinsave.balance.cache").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void get_WhenDisabled_ShouldAlwaysMiss() {
+        BalanceCache disabled = new BalanceCache(new SimpleMeterRegistry(), false, 100, 60);
+        disabled.put(1L, balance(100), disabled.readStamp());
+
+        assertTrue(disabled.get(1L).isEmpty());
+    }
+
+    private BalanceResponse balance(long amount) {
+        return new BalanceResponse(BigDecimal.valueOf(amount), "user@example.com", "User");
+    }
+}
@@ -1,25 +1,44 @@
 package com.koinsave.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.koinsave.dto.request.BatchTransferRequest;
 import com.koinsave.dto.request.TransferRequest;
+import com.koinsave.dto.response.BatchItemResult;
+import com.koinsave.dto.response.BatchTransferResponse;
 import com.koinsave.dto.response.TransactionResponse;
 import com.koinsave.exception.TransactionException;
+import com.koinsave.model.IdempotencyRecord;
+import com.koinsave.model.LedgerEntry;
 import com.koinsave.model.Transaction;
 import com.koinsave.model.User;
+import com.koinsave.repository.IdempotencyRecordRepository;
+import com.koinsave.repository.LedgerEntryRepository;
 import com.koinsave.repository.TransactionRepository;
 import com.koinsave.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,6 +50,24 @@ class TransactionServiceTest {
     @Mock
     private TransactionRepository transactionRepository;
 
+    @Mock
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Mock
+    private BalanceCache balanceCache;
+
+    @Mock
+    private TransferContention transferContention;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Spy
+    private TransferMetrics transferMetrics = new TransferMetrics(new SimpleMeterRegistry());
+
     @InjectMocks
     private TransactionServiceImpl transactionService;
 
@@ -60,7 +97,8 @@ class TransactionServiceTest {
     @Test
     void transfer_WithValidData_ShouldCompleteTransaction() {
         when(userRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(sender));
-        when(userRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(receiver));
+        when(userRepository.findById(2L)).thenReturn(Optional.of(receiver));
+        when(ledgerEntryRepository.sumUnposted(1L)).thenReturn(BigDecimal.ZERO);
         when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> {
             Transaction transaction = invocation.getArgument(0);
             transaction.setId(1L);
@@ -80,16 +118,48 @@ class TransactionServiceTest {
         assertEquals("COMPLETED", response.getStatus());
 
         verify(userRepository).findByIdForUpdate(1L);
-        verify(userRepository).findByIdForUpdate(2L);
-        verify(userRepository).saveAll(anyList());
+        verify(userRepository).findById(2L);
         verify(transactionRepository).save(any(Transaction.class));
+        verify(userRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void transfer_WithValidData_ShouldAppendDebitAndCreditEntries() {
+        when(userRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(sender));
+        when(userRepository.findById(2L)).thenReturn(Optional.of(receiver));
+        when(ledgerEntryRepository.sumUnposted(1L)).thenReturn(BigDecimal.ZERO);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> {
+            Transaction transaction = invocation.getArgument(0);
+            transaction.setId(7L);
+            return transaction;
+        });
+
+        transactionService.transfer(1L, transferRequest);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<LedgerEntry>> entries = ArgumentCaptor.forClass(List.class);
+        verify(ledgerEntryRepository).saveAll(entries.capture());
+        LedgerEntry debit = entries.getValue().get(0);
+        LedgerEntry credit = entries.getValue().get(1);
+        assertEquals(LedgerEntry.EntryType.DEBIT, debit.getType());
+        assertEquals(1L, debit.getAccountId());
+        assertEquals(BigDecimal.valueOf(-100), debit.getAmount());
+        assertEquals(LedgerEntry.EntryType.CREDIT, credit.getType());
+        assertEquals(2L, credit.getAccountId());
+        assertEquals(BigDecimal.valueOf(100), credit.getAmount());
+        assertEquals(7L, credit.getTransactionId());
+
+        // Balances are materialized by the compactor, never by the transfer itself
+        assertEquals(BigDecimal.valueOf(1000), sender.getBalance());
+        assertEquals(BigDecimal.valueOf(500), receiver.getBalance());
     }
 
     @Test
     void transfer_WithInsufficientBalance_ShouldThrowException() {
         sender.setBalance(BigDecimal.valueOf(50)); // Only 50 available
         when(userRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(sender));
-        when(userRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(receiver));
+        when(userRepository.findById(2L)).thenReturn(Optional.of(receiver));
+        when(ledgerEntryRepository.sumUnposted(1L)).thenReturn(BigDecimal.ZERO);
 
         TransactionException exception = assertThrows(TransactionException.class,
                 () -> transactionService.transfer(1L, transferRequest));
@@ -97,9 +167,21 @@ class TransactionServiceTest {
         assertEquals("Insufficient balance", exception.getMessage());
 
         verify(userRepository).findByIdForUpdate(1L);
-        verify(userRepository).findByIdForUpdate(2L);
-        verify(userRepository, never()).saveAll(anyList());
         verify(transactionRepository, never()).save(any(Transaction.class));
+        verify(ledgerEntryRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void transfer_WithUnpostedCredits_ShouldCountThemAsAvailable() {
+        sender.setBalance(BigDecimal.valueOf(50));
+        when(userRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(sender));
+        when(userRepository.findById(2L)).thenReturn(Optional.of(receiver));
+        when(ledgerEntryRepository.sumUnposted(1L)).thenReturn(BigDecimal.valueOf(60));
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        TransactionResponse response = transactionService.transfer(1L, transferRequest);
+
+        assertEquals(BigDecimal.valueOf(100), response.getAmount());
     }
 
     @Test
@@ -112,7 +194,6 @@ class TransactionServiceTest {
         assertEquals("Cannot transfer to yourself", exception.getMessage());
 
         verify(userRepository, never()).findByIdForUpdate(anyLong());
-        verify(userRepository, never()).saveAll(anyList());
         verify(transactionRepository, never()).save(any(Transaction.class));
     }
 
@@ -126,7 +207,6 @@ class TransactionServiceTest {
         assertEquals("Amount must be greater than zero", exception.getMessage());
 
         verify(userRepository, never()).findByIdForUpdate(anyLong());
-        verify(userRepository, never()).saveAll(anyList());
         verify(transactionRepository, never()).save(any(Transaction.class));
     }
 
@@ -140,7 +220,6 @@ class TransactionServiceTest {
         assertEquals("Amount must be greater than zero", exception.getMessage());
 
         verify(userRepository, never()).findByIdForUpdate(anyLong());
-        verify(userRepository, never()).saveAll(anyList());
         verify(transactionRepository, never()).save(any(Transaction.class));
     }
 
@@ -154,15 +233,14 @@ class TransactionServiceTest {
         assertEquals("Sender not found", exception.getMessage());
 
         verify(userRepository).findByIdForUpdate(1L);
-        verify(userRepository, never()).findByIdForUpdate(2L);
-        verify(userRepository, never()).saveAll(anyList());
+        verify(userRepository, never()).findById(2L);
         verify(transactionRepository, never()).save(any(Transaction.class));
     }
 
     @Test
     void transfer_ReceiverNotFound_ShouldThrowException() {
         when(userRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(sender));
-        when(userRepository.findByIdForUpdate(2L)).thenReturn(Optional.empty());
+        when(userRepository.findById(2L)).thenReturn(Optional.empty());
 
         TransactionException exception = assertThrows(TransactionException.class,
                 () -> transactionService.transfer(1L, transferRequest));
@@ -170,8 +248,261 @@ class TransactionServiceTest {
         assertEquals("Receiver not found", exception.getMessage());
 
         verify(userRepository).findByIdForUpdate(1L);
-        verify(userRepository).findByIdForUpdate(2L);
-        verify(userRepository, never()).saveAll(anyList());
+        verify(userRepository).findById(2L);
         verify(transactionRepository, never()).save(any(Transaction.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void transfer_ShouldNotLockReceiver() {
+        when(userRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(receiver));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(sender));
+        when(ledgerEntryRepository.sumUnposted(2L)).thenReturn(BigDecimal.ZERO);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        TransactionResponse response = transactionService.transfer(2L,
+                new TransferRequest(1L, BigDecimal.valueOf(100), "Reverse transfer"));
+
+        assertEquals(2L, response.getSenderId());
+        assertEquals(1L, response.getReceiverId());
+        verify(userRepository, never()).findByIdForUpdate(1L);
+    }
+
+    @Test
+    void transfer_InOptimisticMode_ShouldReadSenderWithoutLockAndCheckVersion() {
+        sender.setVersion(3L);
+        when(transferContention.useOptimistic(1L)).thenReturn(true);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(sender));
+        when(userRepository.findById(2L)).thenReturn(Optional.of(receiver));
+        when(ledgerEntryRepository.sumUnposted(1L)).thenReturn(BigDecimal.ZERO);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(userRepository.incrementVersion(1L, 3L)).thenReturn(1);
+
+        transactionService.transfer(1L, transferRequest);
+
+        verify(userRepository, never()).findByIdForUpdate(anyLong());
+        verify(transferContention).recordSuccess(1L);
+    }
+
+    @Test
+    void transfer_InOptimisticModeWithStaleVersion_ShouldRecordConflictAndFail() {
+        sender.setVersion(3L);
+        when(transferContention.useOptimistic(1L)).thenReturn(true);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(sender));
+        when(userRepository.findById(2L)).thenReturn(Optional.of(receiver));
+        when(ledgerEntryRepository.sumUnposted(1L)).thenReturn(BigDecimal.ZERO);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(userRepository.incrementVersion(1L, 3L)).thenReturn(0);
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> transactionService.transfer(1L, transferRequest));
+
+        verify(transferContention).recordConflict(1L);
+        verify(balanceCache, never()).invalidateAfterCommit(anyList());
+    }
+
+    @Test
+    void transfer_WithIdempotencyKey_ShouldClaimKeyBeforeLockingAndStoreResponse() {
+        when(idempotencyRecordRepository.saveAndFlush(any(IdempotencyRecord.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(userRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(sender));
+        when(userRepository.findById(2L)).thenReturn(Optional.of(receiver));
+        when(ledgerEntryRepository.sumUnposted(1L)).thenReturn(BigDecimal.ZERO);
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        transactionService.transfer(1L, transferRequest, "key-1");
+
+        ArgumentCaptor<IdempotencyRecord> record = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        InOrder order = inOrder(idempotencyRecordRepository, userRepository);
+        order.verify(idempotencyRecordRepository).saveAndFlush(record.capture());
+        order.verify(userRepository).findByIdForUpdate(1L);
+        assertEquals(1L, record.getValue().getUserId());
+        assertEquals("key-1", record.getValue().getIdempotencyKey());
+        assertEquals(TransferIdempotency.requestHash(transferRequest), record.getValue().getRequestHash());
+        assertTrue(record.getValue().getResponse().contains("\"description\":\"Test transfer\""));
+    }
+
+    @Test
+    void transferBatch_AllOrNothingWithFailingItems_ShouldRollBackTheOthers() {
+        when(userRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(sender));
+        when(userRepository.findAllById(any())).thenReturn(List.of(receiver));
+        when(ledgerEntryRepository.sumUnposted(1L)).thenReturn(BigDecimal.ZERO);
+
+        BatchTransferResponse response = transactionService.transferBatch(1L, new BatchTransferRequest(List.of(
+                new TransferRequest(2L, BigDecimal.valueOf(100), "Fits"),
+                new TransferRequest(2L, BigDecimal.valueOf(5000), "Too much"),
+                new TransferRequest(99L, BigDecimal.valueOf(10), "Unknown receiver")),
+                BatchTransferRequest.BatchMode.ALL_OR_NOTHING));
+
+        assertEquals(0, response.getCompleted());
+        assertEquals(3, response.getFailed());
+        List<BatchItemResult> results = response.getResults();
+        assertEquals(BatchItemResult.ItemStatus.ROLLED_BACK, results.get(0).getStatus());
+        assertEquals(BatchItemResult.ItemStatus.FAILED, results.get(1).getStatus());
+        assertEquals("Insufficient balance", results.get(1).getError());
+        assertEquals(BatchItemResult.ItemStatus.FAILED, results.get(2).getStatus());
+        assertEquals("Receiver not found", results.get(2).getError());
+
+        verify(transactionRepository, never()).saveAll(anyList());
+        verify(ledgerEntryRepository, never()).saveAll(anyList());
+        verify(balanceCache, never()).invalidateAfterCommit(any());
+    }
+
+    @Test
+    void transferBatch_BestEffort_ShouldApplyItemsThatFitAndReportTheRest() {
+        when(userRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(sender));
+        when(userRepository.findAllById(any())).thenReturn(List.of(receiver));
+        when(ledgerEntryRepository.sumUnposted(1L)).thenReturn(BigDecimal.ZERO);
+        when(transactionRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        BatchTransferResponse response = transactionService.transferBatch(1L, new BatchTransferRequest(List.of(
+                new TransferRequest(2L, BigDecimal.valueOf(600), "First"),
+                new TransferRequest(2L, BigDecimal.valueOf(600), "Second"),
+                new TransferRequest(1L, BigDecimal.valueOf(5), "Self"),
+                new TransferRequest(99L, BigDecimal.valueOf(10), "Unknown receiver")),
+                BatchTransferRequest.BatchMode.BEST_EFFORT));
+
+        assertEquals(1, response.getCompleted());
+        assertEquals(3, response.getFailed());
+        List<BatchItemResult> results = response.getResults();
+        assertEquals(BatchItemResult.ItemStatus.COMPLETED, results.get(0).getStatus());
+        assertEquals("First", results.get(0).getTransaction().getDescription());
+        assertEquals("Insufficient balance", results.get(1).getError());
+        assertEquals("Cannot transfer to yourself", results.get(2).getError());
+        assertEquals("Receiver not found", results.get(3).getError());
+
+        verify(transactionRepository).saveAll(argThat(transactions -> ((Collection<?>) transactions).size() == 1));
+        verify(ledgerEntryRepository).saveAll(argThat(entries -> ((Collection<?>) entries).size() == 2));
+        verify(userRepository).findByIdForUpdate(1L);
+    }
+
+    @Test
+    void submitTransfer_ShouldQueuePendingTransactionWithoutLocking() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(sender));
+        when(userRepository.findById(2L)).thenReturn(Optional.of(receiver));
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> {
+            Transaction transaction = invocation.getArgument(0);
+            transaction.setId(11L);
+            return transaction;
+        });
+
+        TransactionResponse response = transactionService.submitTransfer(1L, transferRequest);
+
+        assertEquals(11L, response.getId());
+        assertEquals("PENDING", response.getStatus());
+        verify(userRepository, never()).findByIdForUpdate(anyLong());
+        verify(ledgerEntryRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void processPending_WithSufficientBalance_ShouldCompleteAndAppendEntries() {
+        Transaction pending = pendingTransaction(BigDecimal.valueOf(100));
+        when(transactionRepository.findById(11L)).thenReturn(Optional.of(pending));
+        when(userRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(sender));
+        when(ledgerEntryRepository.sumUnposted(1L)).thenReturn(BigDecimal.ZERO);
+        when(transactionRepository.settlePending(eq(11L), eq(Transaction.TransactionStatus.COMPLETED), isNull(), any()))
+                .thenReturn(1);
+
+        assertTrue(transactionService.processPending(11L));
+
+        verify(ledgerEntryRepository).saveAll(anyList());
+    }
+
+    @Test
+    void processPending_WithInsufficientBalance_ShouldFailWithReason() {
+        Transaction pending = pendingTransaction(BigDecimal.valueOf(5000));
+        when(transactionRepository.findById(11L)).thenReturn(Optional.of(pending));
+        when(userRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(sender));
+        when(ledgerEntryRepository.sumUnposted(1L)).thenReturn(BigDecimal.ZERO);
+        when(transactionRepository.settlePending(eq(11L), eq(Transaction.TransactionStatus.FAILED),
+                eq("Insufficient balance"), any())).thenReturn(1);
+
+        assertTrue(transactionService.processPending(11L));
+
+        verify(ledgerEntryRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void processPending_WhenAlreadySettled_ShouldDoNothing() {
+        Transaction settled = pendingTransaction(BigDecimal.valueOf(100));
+        settled.setStatus(Transaction.TransactionStatus.COMPLETED);
+        when(transactionRepository.findById(11L)).thenReturn(Optional.of(settled));
+
+        assertFalse(transactionService.processPending(11L));
+
+        verify(userRepository, never()).findByIdForUpdate(anyLong());
+    }
+
+    @Test
+    void processPending_WhenSettledConcurrently_ShouldFail() {
+        Transaction pending = pendingTransaction(BigDecimal.valueOf(100));
+        when(transactionRepository.findById(11L)).thenReturn(Optional.of(pending));
+        when(userRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(sender));
+        when(ledgerEntryRepository.sumUnposted(1L)).thenReturn(BigDecimal.ZERO);
+        when(transactionRepository.settlePending(eq(11L), any(), any(), any())).thenReturn(0);
+
+        assertThrows(ConcurrencyFailureException.class, () -> transactionService.processPending(11L));
+    }
+
+    @Test
+    void failPending_ShouldSettleAsFailedWithoutLedgerEntries() {
+        when(transactionRepository.settlePending(eq(11L), eq(Transaction.TransactionStatus.FAILED),
+                eq("Sender not found"), any())).thenReturn(1);
+
+        assertTrue(transactionService.failPending(11L, "Sender not found"));
+
+        verify(ledgerEntryRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void getTransferStatus_ForUnrelatedUser_ShouldThrowException() {
+        when(transactionRepository.findById(11L)).thenReturn(Optional.of(pendingTransaction(BigDecimal.TEN)));
+
+        TransactionException exception = assertThrows(TransactionException.class,
+                () -> transactionService.getTransferStatus(3L, 11L));
+
+        assertEquals("Transaction not found", exception.getMessage());
+    }
+
+    private Transaction pendingTransaction(BigDecimal amount) {
+        Transaction transaction = new Transaction();
+        transaction.setId(11L);
+        transaction.setSender(sender);
+        transaction.setReceiver(receiver);
+        transaction.setAmount(amount);
+        transaction.setDescription("Queued transfer");
+        transaction.setStatus(Transaction.TransactionStatus.PENDING);
+        return transaction;
+    }
+
+    @Test
+    void transferGroup_WithOneFailingTransfer_ShouldApplyTheOthers() {
+        User third = new User();
+        third.setId(3L);
+        third.setFullName("Third User");
+        third.setBalance(BigDecimal.valueOf(20));
+        when(userRepository.findAllByIdForUpdate(any())).thenReturn(List.of(sender, receiver, third));
+        when(userRepository.findAllById(any())).thenReturn(List.of(sender, receiver));
+        when(ledgerEntryRepository.sumUnposted(anyLong())).thenReturn(BigDecimal.ZERO);
+        when(transactionRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<BatchItemResult> results = transactionService.transferGroup(List.of(
+                new GroupedTransfer(1L, new TransferRequest(2L, BigDecimal.valueOf(100), "First")),
+                new GroupedTransfer(3L, new TransferRequest(2L, BigDecimal.valueOf(50), "Too much")),
+                new GroupedTransfer(2L, new TransferRequest(1L, BigDecimal.valueOf(30), "Back")),
+                new GroupedTransfer(1L, new TransferRequest(1L, BigDecimal.valueOf(5), "Self"))));
+
+        assertEquals(BatchItemResult.ItemStatus.COMPLETED, results.get(0).getStatus());
+        assertEquals(BatchItemResult.ItemStatus.FAILED, results.get(1).getStatus());
+        assertEquals("Insufficient balance", results.get(1).getError());
+        assertEquals(BatchItemResult.ItemStatus.COMPLETED, results.get(2).getStatus());
+        assertEquals("Back", results.get(2).getTransaction().getDescription());
+        assertEquals("Cannot transfer to yourself", results.get(3).getError());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<Long>> locked = ArgumentCaptor.forClass(Collection.class);
+        verify(userRepository).findAllByIdForUpdate(locked.capture());
+        assertEquals(3, locked.getValue().size());
+        verify(userRepository, never()).findByIdForUpdate(anyLong());
+        verify(ledgerEntryRepository).saveAll(argThat(entries -> ((Collection<?>) entries).size() == 4));
+    }
+}
@@ -0,0 +1,165 @@
+package com.koinsave.service;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.koinsave.dto.request.TransferRequest;
+import com.koinsave.dto.response.BatchItemResult;
+import com.koinsave.dto.response.TransactionResponse;
+import com.koinsave.exception.TransactionException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.transaction.TransactionSystemException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class TransferCoalescerTest {
+
+    private final TransactionService transactionService = mock(TransactionService.class);
+    private final TransactionServiceImpl jpaTransactionService = mock(TransactionServiceImpl.class);
+    private TransferCoalescer coalescer;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        coalescer.shutdown();
+    }
+
+    @Test
+    void transfer_WhenDisabled_ShouldGoStraightToTransactionService() {
+        coalescer = coalescer(false, 1000, 32);
+        TransferRequest request = new TransferRequest(2L, BigDecimal.TEN, "Direct");
+        TransactionResponse response = new TransactionResponse();
+        when(transactionService.transfer(1L, request)).thenReturn(response);
+
+        assertSame(response, coalescer.transfer(1L, request));
+        verify(jpaTransactionService, never()).transferGroup(anyList());
+    }
+
+    @Test
+    void transfer_ConcurrentCallers_ShouldShareOneGroupAndGetTheirOwnResults() throws Exception {
+        coalescer = coalescer(true, 200_000, 4);
+        CountDownLatch grouped = new CountDownLatch(1);
+        when(jpaTransactionService.transferGroup(anyList())).thenAnswer(invocation -> {
+            List<GroupedTransfer> transfers = invocation.getArgument(0);
+            List<BatchItemResult> results = new ArrayList<>();
+            for (int i = 0; i < transfers.size(); i++) {
+                TransferRequest request = transfers.get(i).request();
+                results.add(request.getAmount().compareTo(BigDecimal.valueOf(100)) > 0
+                        ? new BatchItemResult(i, BatchItemResult.ItemStatus.FAILED, null, "Insufficient balance")
+                        : new BatchItemResult(i, BatchItemResult.ItemStatus.COMPLETED, response(request), null));
+            }
+            grouped.countDown();
+            return results;
+        });
+
+        List<CompletableFuture<TransactionResponse>> callers = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            long amount = i == 3 ? 500 : i;
+            TransferRequest request = new TransferRequest(10L, BigDecimal.valueOf(amount), "Caller " + i);
+            long senderId = i;
+            callers.add(CompletableFuture.supplyAsync(() -> coalescer.transfer(senderId, request)));
+        }
+
+        assertTrue(grouped.await(5, TimeUnit.SECONDS));
+        assertEquals("Caller 1", callers.get(0).get(5, TimeUnit.SECONDS).getDescription());
+        assertEquals("Caller 4", callers.get(3).get(5, TimeUnit.SECONDS).getDescription());
+        Exception failure = assertThrows(Exception.class, () -> callers.get(2).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TransactionException.class, failure.getCause());
+        verify(jpaTransactionService, times(1)).transferGroup(anyList());
+    }
+
+    @Test
+    void transfer_WhenGroupTransactionFails_ShouldApplyTransfersOneByOne() {
+        coalescer = coalescer(true, 1000, 32);
+        TransferRequest request = new TransferRequest(2L, BigDecimal.TEN, "Fallback");
+        TransactionResponse response = response(request);
+        when(jpaTransactionService.transferGroup(anyList()))
+                .thenThrow(new PessimisticLockingFailureException("lock timeout"));
+        when(jpaTransactionService.transfer(1L, request)).thenReturn(response);
+
+        assertSame(response, coalescer.transfer(1L, request));
+    }
+
+    @Test
+    void transfer_WhenGroupOutcomeIsUnknown_ShouldFailWithoutRetrying() {
+        coalescer = coalescer(true, 1000, 32);
+        TransferRequest request = new TransferRequest(2L, BigDecimal.TEN, "Unknown");
+        when(jpaTransactionService.transferGroup(anyList()))
+                .thenThrow(new TransactionSystemException("commit failed"));
+
+        TransactionException exception = assertThrows(TransactionException.class,
+                () -> coalescer.transfer(1L, request));
+
+        assertEquals("Transfer outcome is unknown, check your history before retrying", exception.getMessage());
+        verify(jpaTransactionService, never()).transfer(anyLong(), any(TransferRequest.class));
+    }
+
+    @Test
+    void shutdown_ShouldFailTransfersStillQueued() throws Exception {
+        coalescer = coalescer(true, 1000, 32);
+        CountDownLatch committing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        TransferRequest first = new TransferRequest(2L, BigDecimal.TEN, "First");
+        when(jpaTransactionService.transferGroup(anyList())).thenAnswer(invocation -> {
+            committing.countDown();
+            // shutdown() interrupts the committer; the group has to finish regardless
+            Uninterruptibles.awaitUninterruptibly(release);
+            return List.of(new BatchItemResult(0, BatchItemResult.ItemStatus.COMPLETED, response(first), null));
+        });
+        CompletableFuture<TransactionResponse> inGroup = CompletableFuture.supplyAsync(() -> coalescer.transfer(1L, first));
+        assertTrue(committing.await(5, TimeUnit.SECONDS));
+        CompletableFuture<TransactionResponse> queued = CompletableFuture.supplyAsync(
+                () -> coalescer.transfer(3L, new TransferRequest(2L, BigDecimal.ONE, "Queued")));
+        Thread.sleep(100);
+
+        CompletableFuture<Void> stopped = CompletableFuture.runAsync(() -> {
+            try {
+                coalescer.shutdown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        release.countDown();
+        stopped.get(5, TimeUnit.SECONDS);
+
+        assertEquals("First", inGroup.get(5, TimeUnit.SECONDS).getDescription());
+        Exception failure = assertThrows(Exception.class, () -> queued.get(5, TimeUnit.SECONDS));
+        assertEquals("Transfer service is shutting down", failure.getCause().getMessage());
+        verify(jpaTransactionService, times(1)).transferGroup(anyList());
+    }
+
+    @Test
+    void transfer_ToSelf_ShouldFailWithoutQueueing() {
+        coalescer = coalescer(true, 1000, 32);
+
+        assertThrows(TransactionException.class,
+                () -> coalescer.transfer(1L, new TransferRequest(1L, BigDecimal.TEN, "Self")));
+        verify(jpaTransactionService, never()).transferGroup(anyList());
+        verify(jpaTransactionService, never()).transfer(anyLong(), any(TransferRequest.class));
+    }
+
+    private TransferCoalescer coalescer(boolean enabled, long windowMicros, int maxBatch) {
+        return new TransferCoalescer(transactionService, jpaTransactionService, new SimpleMeterRegistry(),
+                "jpa", enabled, windowMicros, maxBatch, 1, 5000);
+    }
+
+    private static TransactionResponse response(TransferRequest request) {
+        TransactionResponse response = new TransactionResponse();
+        response.setReceiverId(request.getReceiverId());
+        response.setAmount(request.getAmount());
+        response.setDescription(request.getDescription());
+        response.setStatus("COMPLETED");
+        return response;
+    }
+}
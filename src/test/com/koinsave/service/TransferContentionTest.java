@@ -0,0 +1,55 @@
+package com.koinsave.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransferContentionTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void useOptimistic_InPessimisticMode_ShouldAlwaysLock() {
+        TransferContention contention = new TransferContention(meterRegistry, "pessimistic", 3, 30000, 100);
+
+        assertFalse(contention.useOptimistic(1L));
+    }
+
+    @Test
+    void recordConflict_AfterRepeatedConflicts_ShouldFallBackForThatSenderOnly() {
+        TransferContention contention = new TransferContention(meterRegistry, "optimistic", 3, 30000, 100);
+
+        contention.recordConflict(1L);
+        contention.recordConflict(1L);
+        assertTrue(contention.useOptimistic(1L));
+
+        contention.recordConflict(1L);
+        assertFalse(contention.useOptimistic(1L));
+        assertTrue(contention.useOptimistic(2L));
+        assertEquals(1, meterRegistry.get("koinsave.transfer.optimistic.fallbacks").counter().count());
+        assertEquals(3, meterRegistry.get("koinsave.transfer.optimistic.conflicts").counter().count());
+    }
+
+    @Test
+    void recordSuccess_ShouldResetConsecutiveConflicts() {
+        TransferContention contention = new TransferContention(meterRegistry, "optimistic", 2, 30000, 100);
+
+        contention.recordConflict(1L);
+        contention.recordSuccess(1L);
+        contention.recordConflict(1L);
+
+        assertTrue(contention.useOptimistic(1L));
+    }
+
+    @Test
+    void useOptimistic_AfterFallbackExpires_ShouldTryOptimisticAgain() throws InterruptedException {
+        TransferContention contention = new TransferContention(meterRegistry, "optimistic", 1, 20, 100);
+
+        contention.recordConflict(1L);
+        assertFalse(contention.useOptimistic(1L));
+
+        Thread.sleep(50);
+        assertTrue(contention.useOptimistic(1L));
+    }
+}
@@ -0,0 +1,117 @@
+package com.koinsave.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.koinsave.dto.request.TransferRequest;
+import com.koinsave.dto.response.TransactionResponse;
+import com.koinsave.exception.TransactionException;
+import com.koinsave.model.IdempotencyRecord;
+import com.koinsave.repository.IdempotencyRecordRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class TransferIdempotencyTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private TransactionService transactionService;
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+    private TransferIdempotency transferIdempotency;
+    private TransferRequest request;
+    private TransactionResponse response;
+
+    @BeforeEach
+    void setUp() {
+        transactionService = mock(TransactionService.class);
+        idempotencyRecordRepository = mock(IdempotencyRecordRepository.class);
+        transferIdempotency = new TransferIdempotency(transactionService, idempotencyRecordRepository,
+                objectMapper, new SimpleMeterRegistry(), 100, 60);
+        request = new TransferRequest(2L, new BigDecimal("100.00"), "Rent");
+        response = new TransactionResponse(9L, 1L, "Sender User", 2L, "Receiver User",
+                new BigDecimal("100.00"), "Rent", "COMPLETED", LocalDateTime.of(2024, 1, 1, 12, 0));
+    }
+
+    @Test
+    void transfer_WithNewKey_ShouldTransferOnce() {
+        when(idempotencyRecordRepository.findByUserIdAndIdempotencyKey(1L, "key-1")).thenReturn(Optional.empty());
+        when(transactionService.transfer(1L, request, "key-1")).thenReturn(response);
+
+        assertEquals(response, transferIdempotency.transfer(1L, "key-1", request));
+        verify(transactionService).transfer(1L, request, "key-1");
+    }
+
+    @Test
+    void transfer_WithRepeatedKey_ShouldReplayFromCacheWithoutDatabase() {
+        when(idempotencyRecordRepository.findByUserIdAndIdempotencyKey(1L, "key-1")).thenReturn(Optional.empty());
+        when(transactionService.transfer(1L, request, "key-1")).thenReturn(response);
+        transferIdempotency.transfer(1L, "key-1", request);
+
+        TransactionResponse replayed = transferIdempotency.transfer(1L, "key-1",
+                new TransferRequest(2L, new BigDecimal("100"), "Rent"));
+
+        assertEquals(response, replayed);
+        verify(transactionService, times(1)).transfer(anyLong(), any(TransferRequest.class), anyString());
+        verify(idempotencyRecordRepository, times(1)).findByUserIdAndIdempotencyKey(1L, "key-1");
+    }
+
+    @Test
+    void transfer_WithKeyStoredInDatabase_ShouldReplayStoredResponse() throws Exception {
+        IdempotencyRecord record = IdempotencyRecord.claim(1L, "key-1", TransferIdempotency.requestHash(request));
+        record.setResponse(objectMapper.writeValueAsString(response));
+        when(idempotencyRecordRepository.findByUserIdAndIdempotencyKey(1L, "key-1")).thenReturn(Optional.of(record));
+
+        assertEquals(response, transferIdempotency.transfer(1L, "key-1", request));
+        verify(transactionService, never()).transfer(anyLong(), any(TransferRequest.class), anyString());
+    }
+
+    @Test
+    void transfer_WithKeyReusedForDifferentTransfer_ShouldThrowException() {
+        when(idempotencyRecordRepository.findByUserIdAndIdempotencyKey(1L, "key-1")).thenReturn(Optional.empty());
+        when(transactionService.transfer(1L, request, "key-1")).thenReturn(response);
+        transferIdempotency.transfer(1L, "key-1", request);
+
+        TransactionException exception = assertThrows(TransactionException.class,
+                () -> transferIdempotency.transfer(1L, "key-1", new TransferRequest(2L, new BigDecimal("200"), "Rent")));
+
+        assertEquals(TransferIdempotency.KEY_REUSED_MESSAGE, exception.getMessage());
+    }
+
+    @Test
+    void transfer_WhenConcurrentDuplicateCommitsFirst_ShouldReturnItsResponse() throws Exception {
+        IdempotencyRecord record = IdempotencyRecord.claim(1L, "key-1", TransferIdempotency.requestHash(request));
+        record.setResponse(objectMapper.writeValueAsString(response));
+        when(idempotencyRecordRepository.findByUserIdAndIdempotencyKey(1L, "key-1"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(record));
+        when(transactionService.transfer(1L, request, "key-1"))
+                .thenThrow(new DataIntegrityViolationException("uk_idempotency_keys_user_key"));
+
+        assertEquals(response, transferIdempotency.transfer(1L, "key-1", request));
+    }
+
+    @Test
+    void transfer_WhenDuplicateClaimRolledBack_ShouldAskClientToRetry() {
+        when(idempotencyRecordRepository.findByUserIdAndIdempotencyKey(1L, "key-1")).thenReturn(Optional.empty());
+        when(transactionService.transfer(1L, request, "key-1"))
+                .thenThrow(new DataIntegrityViolationException("uk_idempotency_keys_user_key"));
+
+        assertThrows(ConcurrencyFailureException.class, () -> transferIdempotency.transfer(1L, "key-1", request));
+    }
+
+    @Test
+    void transfer_WithBlankKey_ShouldThrowException() {
+        assertThrows(TransactionException.class, () -> transferIdempotency.transfer(1L, " ", request));
+        verifyNoInteractions(transactionService, idempotencyRecordRepository);
+    }
+}
@@ -0,0 +1,169 @@
+package com.koinsave.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransferJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private TransferJournal journal;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (journal != null) {
+            journal.shutdown();
+        }
+    }
+
+    @Test
+    void append_ShouldSurviveReopeningTheJournal() throws Exception {
+        journal = open("every-write", 64 * JournalRecord.SIZE);
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_456_000);
+        assertEquals(1, journal.append(posting(1L, 2L, "12.34", "Rent ✓", createdAt)));
+        assertEquals(2, journal.append(posting(2L, 3L, "0.01", "Change", createdAt)));
+        reopen("every-write", 64 * JournalRecord.SIZE);
+
+        List<JournalRecord> records = records(1);
+        assertEquals(2, records.size());
+        JournalRecord first = records.get(0);
+        assertEquals(1, first.sequence());
+        assertEquals(1L, first.senderId());
+        assertEquals(2L, first.receiverId());
+        assertEquals(new BigDecimal("12.34"), first.amount());
+        assertEquals("Rent ✓", first.description());
+        assertEquals(createdAt, first.createdAt());
+        assertEquals(3, journal.append(posting(3L, 1L, "5.00", "After restart", createdAt)));
+    }
+
+    @Test
+    void append_WithIdempotencyKey_ShouldKeepKeyAndRequestHash() throws Exception {
+        journal = open("every-write", 64 * JournalRecord.SIZE);
+        String requestHash = "ab".repeat(32);
+        LedgerPosting keyed = new LedgerPosting(1L, 2L, new BigDecimal("7.50"), "Keyed", LocalDateTime.now(),
+                new LedgerPosting.Idempotency("key-1", requestHash, null), LedgerPosting.NOT_JOURNALED);
+        journal.append(keyed);
+        journal.append(posting(1L, 2L, "1.00", "Unkeyed", LocalDateTime.now()));
+        reopen("every-write", 64 * JournalRecord.SIZE);
+
+        List<JournalRecord> records = records(1);
+        assertEquals("key-1", records.get(0).idempotencyKey());
+        assertEquals(requestHash, records.get(0).requestHash());
+        assertEquals("Keyed", records.get(0).description());
+        assertNull(records.get(1).idempotencyKey());
+        assertNull(records.get(1).toPosting(null).idempotency());
+    }
+
+    @Test
+    void append_WhenSegmentIsFull_ShouldRollOverToANewSegment() throws Exception {
+        journal = open("group", 2 * JournalRecord.SIZE);
+        for (int i = 0; i < 5; i++) {
+            journal.append(posting(1L, 2L, "1.00", "Transfer " + i, LocalDateTime.now()));
+        }
+
+        assertEquals(List.of("00000000000000000001.journal", "00000000000000000003.journal",
+                "00000000000000000005.journal"), segmentFiles());
+        assertEquals(List.of(3L, 4L, 5L), records(3).stream().map(JournalRecord::sequence).toList());
+    }
+
+    @Test
+    void recover_WithTornLastRecord_ShouldResumeAfterTheLastCompleteOne() throws Exception {
+        journal = open("every-write", 8 * JournalRecord.SIZE);
+        journal.append(posting(1L, 2L, "1.00", "Complete", LocalDateTime.now()));
+        journal.append(posting(1L, 2L, "2.00", "Torn", LocalDateTime.now()));
+        journal.shutdown();
+        journal = null;
+        try (FileChannel channel = FileChannel.open(directory.resolve("00000000000000000001.journal"),
+                StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x7F}), JournalRecord.SIZE + 100);
+        }
+
+        journal = open("every-write", 8 * JournalRecord.SIZE);
+
+        assertEquals(1, journal.lastSequence());
+        assertEquals(List.of("Complete"), records(1).stream().map(JournalRecord::description).toList());
+        assertEquals(2, journal.append(posting(1L, 2L, "3.00", "Rewritten", LocalDateTime.now())));
+    }
+
+    @Test
+    void markPersisted_ShouldAdvanceOverContiguousSequencesAndDeleteOldSegments() throws Exception {
+        journal = open("every-write", 2 * JournalRecord.SIZE);
+        for (int i = 0; i < 5; i++) {
+            journal.append(posting(1L, 2L, "1.00", "Transfer " + i, LocalDateTime.now()));
+        }
+
+        journal.markPersisted(List.of(1L, 2L, 4L));
+        assertEquals(2, journal.checkpoint());
+        assertEquals(2, segmentFiles().size());
+
+        journal.markPersisted(List.of(3L));
+        assertEquals(4, journal.checkpoint());
+        assertEquals(List.of("00000000000000000005.journal"), segmentFiles());
+
+        reopen("every-write", 2 * JournalRecord.SIZE);
+        assertEquals(4, journal.checkpoint());
+        assertEquals(List.of(5L), records(journal.checkpoint() + 1).stream().map(JournalRecord::sequence).toList());
+    }
+
+    @Test
+    void awaitDurable_WithGroupPolicy_ShouldReturnOnceSynced() throws Exception {
+        journal = open("group", 64 * JournalRecord.SIZE);
+        long sequence = journal.append(posting(1L, 2L, "1.00", "Grouped", LocalDateTime.now()));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(2), () -> journal.awaitDurable(sequence));
+    }
+
+    @Test
+    void fits_ShouldRejectDescriptionsLongerThanTheRecord() {
+        assertTrue(JournalRecord.fits("x".repeat(940), null));
+        assertFalse(JournalRecord.fits("x".repeat(941), null));
+        assertFalse(JournalRecord.fits("x".repeat(930), "key-".repeat(3)));
+    }
+
+    private TransferJournal open(String fsync, long segmentSize) throws IOException {
+        return new TransferJournal(directory, segmentSize, fsync, 5, 1000);
+    }
+
+    private void reopen(String fsync, long segmentSize) throws Exception {
+        journal.shutdown();
+        journal = open(fsync, segmentSize);
+    }
+
+    private List<JournalRecord> records(long fromSequence) {
+        List<JournalRecord> records = new ArrayList<>();
+        journal.forEach(fromSequence, records::add);
+        return records;
+    }
+
+    private List<String> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(".journal"))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static LedgerPosting posting(Long senderId, Long receiverId, String amount, String description,
+                                         LocalDateTime createdAt) {
+        return new LedgerPosting(senderId, receiverId, new BigDecimal(amount), description, createdAt, null,
+                LedgerPosting.NOT_JOURNALED);
+    }
+}
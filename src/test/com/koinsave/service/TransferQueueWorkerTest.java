@@ -0,0 +1,76 @@
+package com.koinsave.service;
+
+import com.koinsave.exception.TransactionException;
+import com.koinsave.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransferQueueWorkerTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private TransactionServiceImpl transactionService;
+
+    private TransferQueueWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        // The dispatcher polls the mocked repository, which never returns a pending transfer
+        worker = new TransferQueueWorker(transactionRepository, transactionService, new SimpleMeterRegistry(),
+                1, 200, 50, 3);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        worker.shutdown();
+    }
+
+    @Test
+    void settle_WhenSettled_ShouldReportProgress() {
+        when(transactionService.processPending(11L)).thenReturn(true);
+
+        assertTrue(worker.settle(11L, LocalDateTime.now()));
+
+        verify(transactionService, never()).failPending(anyLong(), anyString());
+    }
+
+    @Test
+    void settle_WhenTransferCanNeverSettle_ShouldFailItWithTheReason() {
+        when(transactionService.processPending(11L)).thenThrow(new TransactionException("Sender not found"));
+        when(transactionService.failPending(11L, "Sender not found")).thenReturn(true);
+
+        assertTrue(worker.settle(11L, LocalDateTime.now()));
+
+        verify(transactionService).failPending(11L, "Sender not found");
+    }
+
+    @Test
+    void settle_WhenAttemptsRunOut_ShouldFailTheTransfer() {
+        when(transactionService.processPending(11L)).thenThrow(new QueryTimeoutException("timeout"));
+        when(transactionService.failPending(11L, "Transfer could not be processed, please try again"))
+                .thenReturn(true);
+
+        assertFalse(worker.settle(11L, LocalDateTime.now()));
+        assertFalse(worker.settle(11L, LocalDateTime.now()));
+        verify(transactionService, never()).failPending(anyLong(), anyString());
+
+        assertTrue(worker.settle(11L, LocalDateTime.now()));
+        verify(transactionService).failPending(11L, "Transfer could not be processed, please try again");
+    }
+}
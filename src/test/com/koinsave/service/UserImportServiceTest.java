@@ -0,0 +1,105 @@
+package com.koinsave.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.koinsave.dto.request.ExportFormat;
+import com.koinsave.dto.response.ImportRowResult;
+import com.koinsave.dto.response.ImportRowResult.RowStatus;
+import com.koinsave.dto.response.UserImportSummary;
+import com.koinsave.model.User;
+import com.koinsave.repository.UserRepository;
+import com.koinsave.util.PasswordUtil;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserImportServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PasswordUtil passwordUtil;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private UserImportServiceImpl userImportService;
+
+    @BeforeEach
+    void setUp() {
+        userImportService = new UserImportServiceImpl(userRepository, passwordUtil, new ObjectMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator(), transactionManager);
+        ReflectionTestUtils.setField(userImportService, "chunkSize", 2);
+    }
+
+    @Test
+    void importUsers_WithCsv_ShouldClassifyEachRowInLineOrder() throws Exception {
+        String csv = """
+                email,password,fullName,initialBalance
+                new@example.com,password123,New User,50
+                "Taken@Example.com",password123,Taken User,0
+                not-an-email,password123,Bad Email,0
+                NEW@example.com,password123,Repeat User,0
+                """;
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(List.of("taken@example.com"));
+        when(passwordUtil.encodeForImport(anyString())).thenReturn(CompletableFuture.completedFuture("encodedPassword"));
+        when(userRepository.saveAllAndFlush(anyList())).thenAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            users.forEach(user -> user.setId(10L));
+            return users;
+        });
+
+        List<ImportRowResult> results = new ArrayList<>();
+        UserImportSummary summary = userImportService.importUsers(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ExportFormat.CSV, results::addAll);
+
+        assertEquals(List.of(2L, 3L, 4L, 5L), results.stream().map(ImportRowResult::getLine).toList());
+        assertEquals(List.of(RowStatus.CREATED, RowStatus.DUPLICATE, RowStatus.INVALID, RowStatus.DUPLICATE),
+                results.stream().map(ImportRowResult::getStatus).toList());
+        assertEquals(10L, results.get(0).getUserId());
+        assertEquals(new UserImportSummary(4, 1, 2, 1, 0), summary);
+        verify(userRepository, times(1)).saveAllAndFlush(anyList());
+    }
+
+    @Test
+    void importUsers_WhenChunkInsertFails_ShouldMarkRowsFailedAndContinue() throws Exception {
+        String ndjson = """
+                {"email":"a@example.com","password":"password123","fullName":"A"}
+                {"email":"b@example.com","password":"password123","fullName":"B"}
+                {"email":"c@example.com","password":"password123","fullName":"C"}
+                """;
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(List.of());
+        when(passwordUtil.encodeForImport(anyString())).thenReturn(CompletableFuture.completedFuture("encodedPassword"));
+        when(userRepository.saveAllAndFlush(anyList()))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<ImportRowResult> results = new ArrayList<>();
+        UserImportSummary summary = userImportService.importUsers(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), ExportFormat.NDJSON, results::addAll);
+
+        assertEquals(List.of(RowStatus.FAILED, RowStatus.FAILED, RowStatus.CREATED),
+                results.stream().map(ImportRowResult::getStatus).toList());
+        assertEquals(2, summary.getFailed());
+        assertEquals(1, summary.getCreated());
+    }
+}